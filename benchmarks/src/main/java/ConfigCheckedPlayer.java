@@ -0,0 +1,28 @@
+// Player whose accessors check Config on every call, as Player did before bug injection
+// moved into FaultInjectingPlayer; the baseline of bench.AccessorBenchmark
+class ConfigCheckedPlayer extends Player {
+
+	private static void checkConfig() {
+		if (Config.getBuggyPlayer()) {
+			throw new UnsupportedOperationException("Injected bug for Player class");
+		}
+	}
+
+	@Override
+	public boolean checkCoffee() {
+		checkConfig();
+		return super.checkCoffee();
+	}
+
+	@Override
+	public boolean checkCream() {
+		checkConfig();
+		return super.checkCream();
+	}
+
+	@Override
+	public boolean checkSugar() {
+		checkConfig();
+		return super.checkSugar();
+	}
+}
@@ -0,0 +1,44 @@
+// Room whose accessors check Config on every call, as Room did before bug injection
+// moved into FaultInjectingRoom; the baseline of bench.AccessorBenchmark
+class ConfigCheckedRoom extends Room {
+
+	public ConfigCheckedRoom(String furnishing, String adjective, Item item) {
+		super(furnishing, adjective, item);
+	}
+
+	private static void checkConfig() {
+		if (Config.getBuggyRoom()) {
+			throw new UnsupportedOperationException("Injected bug for Room class");
+		}
+	}
+
+	@Override
+	public String getFurnishing() {
+		checkConfig();
+		return super.getFurnishing();
+	}
+
+	@Override
+	public String getAdjective() {
+		checkConfig();
+		return super.getAdjective();
+	}
+
+	@Override
+	public Item getItem() {
+		checkConfig();
+		return super.getItem();
+	}
+
+	@Override
+	public String getNorthDoor() {
+		checkConfig();
+		return super.getNorthDoor();
+	}
+
+	@Override
+	public String getSouthDoor() {
+		checkConfig();
+		return super.getSouthDoor();
+	}
+}
@@ -0,0 +1,99 @@
+import bench.GameEngine;
+import org.openjdk.jmh.infra.Blackhole;
+
+// GameEngine implementation used by the JMH benchmarks in the bench package
+public class EngineAdapter implements GameEngine {
+	// Commands of a shortest winning game from the first room of the standard house
+	private static final String[] WINNING_GAME = { "L", "N", "N", "L", "N", "N", "N", "L", "D" };
+
+	private final World world;
+	private final Room firstRoom;
+	private CoffeeMakerQuest cmq;
+	private Player player;
+	// Rooms and player read by readAccessors
+	private Room[] accessorRooms;
+	private Player accessorPlayer;
+
+	public EngineAdapter() {
+		CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+		firstRoom = Game.buildHouse(builder);
+		world = builder.getWorld().freeze();
+		newGame();
+	}
+
+	@Override
+	public int buildHouse(int rooms) {
+		CoffeeMakerQuest house = new CoffeeMakerQuestImpl();
+		int added = house.addFirstRoom(new Room("Furnishing 0", "Adjective 0", Item.NONE)) ? 1 : 0;
+		for (int i = 1; i < rooms; i++) {
+			if (house.addRoomAtNorth(new Room("Furnishing " + i, "Adjective " + i, Item.NONE), "North " + i, "South " + i)) {
+				added++;
+			}
+		}
+		return added;
+	}
+
+	@Override
+	public void newGame() {
+		cmq = new CoffeeMakerQuestImpl(world);
+		player = new Player();
+		cmq.setPlayer(player);
+		cmq.setCurrentRoom(world.getRoom(2));
+	}
+
+	@Override
+	public String processCommand(String cmd) {
+		return cmq.processCommand(cmd);
+	}
+
+	@Override
+	public String describeCurrentRoom() {
+		return cmq.getCurrentRoom().getDescription();
+	}
+
+	@Override
+	public String inventoryString() {
+		return player.getInventoryString();
+	}
+
+	@Override
+	public void createAccessorTargets(boolean configChecked) {
+		accessorRooms = new Room[world.size()];
+		for (int i = 0; i < accessorRooms.length; i++) {
+			Room original = world.getRoom(i);
+			Room room = configChecked ? new ConfigCheckedRoom(original.getFurnishing(), original.getAdjective(), original.getItem())
+					: new Room(original.getFurnishing(), original.getAdjective(), original.getItem());
+			room.setNorthDoor(original.getNorthDoor());
+			room.setSouthDoor(original.getSouthDoor());
+			accessorRooms[i] = room;
+		}
+		accessorPlayer = configChecked ? new ConfigCheckedPlayer() : new Player();
+		accessorPlayer.addItem(Item.COFFEE);
+	}
+
+	@Override
+	public void readAccessors(Blackhole blackhole) {
+		for (Room room : accessorRooms) {
+			blackhole.consume(room.getItem());
+			blackhole.consume(room.getAdjective());
+			blackhole.consume(room.getFurnishing());
+			blackhole.consume(room.getNorthDoor());
+			blackhole.consume(room.getSouthDoor());
+		}
+		blackhole.consume(accessorPlayer.checkCoffee());
+		blackhole.consume(accessorPlayer.checkCream());
+		blackhole.consume(accessorPlayer.checkSugar());
+	}
+
+	@Override
+	public String playWinningGame() {
+		CoffeeMakerQuest game = new CoffeeMakerQuestImpl(world);
+		game.setPlayer(new Player());
+		game.setCurrentRoom(firstRoom);
+		String response = null;
+		for (String cmd : WINNING_GAME) {
+			response = game.processCommand(cmd);
+		}
+		return response;
+	}
+}
@@ -0,0 +1,39 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the Room and Player accessors every command uses, with bug injection
+ * chosen once by Room.create/Player.create ("plain") against the accessors that
+ * checked Config on every call before ("configChecked"). Each variant runs in a
+ * fork of its own, so the accessor call sites only ever see one class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessorBenchmark {
+
+	@Param({ "plain", "configChecked" })
+	public String accessors;
+
+	private GameEngine engine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		engine = GameEngine.load();
+		engine.createAccessorTargets(accessors.equals("configChecked"));
+	}
+
+	// Five accessors of each of the six rooms and three of the player
+	@Benchmark
+	@OperationsPerInvocation(33)
+	public void readAccessors(Blackhole blackhole) {
+		engine.readAccessors(blackhole);
+	}
+}
@@ -0,0 +1,33 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of building a house of increasing size with addFirstRoom/addRoomAtNorth.
+ * Time per room should not grow with the size of the house.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BuildBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	public int rooms;
+
+	private GameEngine engine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		engine = GameEngine.load();
+	}
+
+	@Benchmark
+	public int addRoomAtNorth() {
+		return engine.buildHouse(rooms);
+	}
+}
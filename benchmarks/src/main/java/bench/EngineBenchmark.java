@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Per-command cost of CoffeeMakerQuestImpl.processCommand, room and inventory
+ * rendering, and a complete winning game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+	private GameEngine engine;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		engine = GameEngine.load();
+		engine.newGame();
+	}
+
+	// N and S are measured as a pair so the player stays in the middle of the house
+	@Benchmark
+	@OperationsPerInvocation(2)
+	public String commandNorthSouth() {
+		engine.processCommand("N");
+		return engine.processCommand("S");
+	}
+
+	@Benchmark
+	public String commandL() {
+		return engine.processCommand("L");
+	}
+
+	@Benchmark
+	public String commandI() {
+		return engine.processCommand("I");
+	}
+
+	@Benchmark
+	public String commandD() {
+		return engine.processCommand("D");
+	}
+
+	@Benchmark
+	public String commandH() {
+		return engine.processCommand("H");
+	}
+
+	@Benchmark
+	public String commandUnknown() {
+		return engine.processCommand("xyzzy");
+	}
+
+	@Benchmark
+	public String describeRoom() {
+		return engine.describeCurrentRoom();
+	}
+
+	@Benchmark
+	public String inventoryString() {
+		return engine.inventoryString();
+	}
+
+	@Benchmark
+	public String winningGame() {
+		return engine.playWinningGame();
+	}
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations of the game engine exercised by the benchmarks.
+ *
+ * The game classes live in the default package, which named packages cannot
+ * import, while JMH requires benchmarks to be in a named package. The
+ * default-package EngineAdapter implements this interface on top of the game
+ * classes and is loaded reflectively once per trial, so every measured call is
+ * a plain, monomorphic interface call.
+ */
+public interface GameEngine {
+
+	/**
+	 * Build a new house of the given number of rooms with addFirstRoom/addRoomAtNorth.
+	 *
+	 * @param rooms number of rooms
+	 * @return number of rooms actually added
+	 */
+	int buildHouse(int rooms);
+
+	/**
+	 * Start a new game in the third room of the standard six-room house with an empty inventory.
+	 */
+	void newGame();
+
+	/**
+	 * Process a command in the current game.
+	 *
+	 * @param cmd the user command
+	 * @return response string for the command
+	 */
+	String processCommand(String cmd);
+
+	/**
+	 * @return description of the current room of the current game
+	 */
+	String describeCurrentRoom();
+
+	/**
+	 * @return inventory string of the player of the current game
+	 */
+	String inventoryString();
+
+	/**
+	 * Play a new game from the first room to a win.
+	 *
+	 * @return response to the final D command
+	 */
+	String playWinningGame();
+
+	/**
+	 * Create the rooms of the standard house and a player holding the coffee for
+	 * readAccessors.
+	 *
+	 * @param configChecked true for copies of Room and Player whose accessors check
+	 *                      Config on every call, as they did before bug injection
+	 *                      moved into FaultInjectingRoom and FaultInjectingPlayer;
+	 *                      false for plain Room and Player
+	 */
+	void createAccessorTargets(boolean configChecked);
+
+	/**
+	 * Read the item, adjective, furnishing and doors of every room created by
+	 * createAccessorTargets and check the items of the player.
+	 *
+	 * @param blackhole consumes every value read
+	 */
+	void readAccessors(Blackhole blackhole);
+
+	/**
+	 * Load the EngineAdapter for the game classes on the classpath.
+	 *
+	 * @return the engine
+	 */
+	static GameEngine load() {
+		try {
+			return (GameEngine) Class.forName("EngineAdapter").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("EngineAdapter is not on the classpath", e);
+		}
+	}
+}
@@ -0,0 +1,3 @@
+mvn -B package
+
+java -jar benchmarks/target/benchmarks.jar -rf json -rff jmh-result.json "$@"
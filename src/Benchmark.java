@@ -0,0 +1,263 @@
+import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+public class Benchmark {
+	// Largest house built by the benchmarks
+	private static final int MAX_ROOMS = 1000000;
+	
+	public static void main(String[] args) {
+		List<String> selected = Arrays.asList(args);
+		
+		if (selected.isEmpty() || selected.contains("build")) {
+			benchmarkBuild();
+		}
+		if (selected.isEmpty() || selected.contains("walk")) {
+			benchmarkWalk();
+		}
+		if (selected.isEmpty() || selected.contains("dispatch")) {
+			benchmarkDispatch();
+		}
+		if (selected.isEmpty() || selected.contains("describe")) {
+			benchmarkDescribe();
+		}
+		if (selected.isEmpty() || selected.contains("io")) {
+			benchmarkIO();
+		}
+		if (selected.isEmpty() || selected.contains("getters")) {
+			benchmarkGetters();
+		}
+		if (selected.contains("memory")) {
+			// Not part of the default run: it needs a large heap. An optional number sets the room count.
+			int rooms = MAX_ROOMS;
+			for (String arg : args) {
+				if (arg.matches("\\d+")) {
+					rooms = Integer.parseInt(arg);
+				}
+			}
+			benchmarkMemory(rooms);
+		}
+	}
+	
+	// Build a house of the given size using rooms with generated unique adjectives and furnishings.
+	// The player starts in the southern-most room.
+	static CoffeeMakerQuest buildHouse(int size) {
+		CoffeeMakerQuest cmq = new CoffeeMakerQuestImpl();
+		Room first = new Room("Furnishing 0", "Adjective 0", Item.NONE);
+		cmq.addFirstRoom(first);
+		for (int i = 1; i < size; i++) {
+			cmq.addRoomAtNorth(new Room("Furnishing " + i, "Adjective " + i, Item.NONE), "North " + i, "South " + i);
+		}
+		cmq.setPlayer(new Player());
+		cmq.setCurrentRoom(first);
+		return cmq;
+	}
+	
+	// Time addFirstRoom/addRoomAtNorth for growing house sizes; time per room should stay flat
+	private static void benchmarkBuild() {
+		System.out.println("== addRoomAtNorth build time ==");
+		// Warm up the JIT before measuring
+		buildHouse(MAX_ROOMS / 10);
+		for (int size = 1000; size <= MAX_ROOMS; size *= 10) {
+			long start = System.nanoTime();
+			buildHouse(size);
+			long elapsed = System.nanoTime() - start;
+			System.out.printf("%8d rooms: %8.2f ms (%6.1f ns/room)%n", size, elapsed / 1e6, (double) elapsed / size);
+		}
+		System.out.println();
+	}
+	
+	// Walk from the southern-most room to the northern-most room and back; time per move should not depend on house size
+	private static void benchmarkWalk() {
+		System.out.println("== N/S walk ==");
+		CoffeeMakerQuest cmq = buildHouse(MAX_ROOMS);
+		Room first = cmq.getCurrentRoom();
+		long start = System.nanoTime();
+		for (int i = 1; i < MAX_ROOMS; i++) {
+			cmq.processCommand("N");
+		}
+		for (int i = 1; i < MAX_ROOMS; i++) {
+			cmq.processCommand("S");
+		}
+		long elapsed = System.nanoTime() - start;
+		long moves = 2L * (MAX_ROOMS - 1);
+		if (cmq.getCurrentRoom() != first) {
+			throw new IllegalStateException("Walk did not return to the first room");
+		}
+		System.out.printf("%8d moves: %8.2f ms (%6.1f ns/move)%n", moves, elapsed / 1e6, (double) elapsed / moves);
+		System.out.println();
+	}
+	
+	// Replay a mix of non-terminating commands through the String and char entry points of processCommand
+	private static void benchmarkDispatch() {
+		System.out.println("== processCommand dispatch ==");
+		final int rounds = 5000000;
+		String[] strings = { "n", "S", "l", "I", "h", "x" };
+		char[] chars = { 'n', 'S', 'l', 'I', 'h', 'x' };
+		CoffeeMakerQuest cmq = buildHouse(1000);
+		for (int pass = 0; pass < 2; pass++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				cmq.processCommand(strings[i % strings.length]);
+			}
+			long stringTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				cmq.processCommand(chars[i % chars.length]);
+			}
+			long charTime = System.nanoTime() - start;
+			// The first pass only warms up the JIT
+			if (pass == 1) {
+				System.out.printf("String: %6.1f ns/command%n", (double) stringTime / rounds);
+				System.out.printf("char:   %6.1f ns/command%n", (double) charTime / rounds);
+			}
+		}
+		System.out.println();
+	}
+	
+	// Render the current room description the way the game loop does every turn
+	private static void benchmarkDescribe() {
+		System.out.println("== Room description ==");
+		final int rounds = 10000000;
+		Room room = new Room("Quaint sofa", "Small", Item.CREAM);
+		room.setNorthDoor("Magenta");
+		StringBuilder out = new StringBuilder();
+		long chars = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			chars += room.getDescription().length();
+		}
+		long describeTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			out.setLength(0);
+			try {
+				room.writeDescription(out);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			chars += out.length();
+		}
+		long writeTime = System.nanoTime() - start;
+		System.out.printf("getDescription:   %6.1f ns/call%n", (double) describeTime / rounds);
+		System.out.printf("writeDescription: %6.1f ns/call (%d chars)%n", (double) writeTime / rounds, chars);
+		System.out.println();
+	}
+	
+	// Replay a 10M-command script through the Scanner/println game loop and the buffered one
+	private static void benchmarkIO() {
+		System.out.println("== Game loop I/O ==");
+		final int commands = 10000000;
+		String[] cycle = { "n", "l", "i", "s", "h" };
+		StringBuilder script = new StringBuilder(commands * 2);
+		for (int i = 0; i < commands - 1; i++) {
+			script.append(cycle[i % cycle.length]).append('\n');
+		}
+		// Drink at the end so both loops terminate
+		script.append("d\n");
+		byte[] input = script.toString().getBytes();
+		script = null;
+		
+		CountingOutputStream sink = new CountingOutputStream();
+		CoffeeMakerQuest cmq = new CoffeeMakerQuestImpl();
+		cmq.setPlayer(new Player());
+		cmq.setCurrentRoom(Game.buildHouse(cmq));
+		long start = System.nanoTime();
+		Scanner scanner = new Scanner(new ByteArrayInputStream(input));
+		Game.play(cmq, scanner, new PrintStream(sink));
+		long plainTime = System.nanoTime() - start;
+		long plainBytes = sink.count;
+		
+		sink = new CountingOutputStream();
+		cmq = new CoffeeMakerQuestImpl();
+		cmq.setPlayer(new Player());
+		cmq.setCurrentRoom(Game.buildHouse(cmq));
+		start = System.nanoTime();
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(input)), 1 << 16);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(sink), 1 << 16);
+			Game.playFast(cmq, reader, writer);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		long fastTime = System.nanoTime() - start;
+		
+		System.out.printf("Scanner/println: %8.2f ms (%6.1f ns/command, %d bytes)%n", plainTime / 1e6, (double) plainTime / commands, plainBytes);
+		System.out.printf("Buffered:        %8.2f ms (%6.1f ns/command, %d bytes)%n", fastTime / 1e6, (double) fastTime / commands, sink.count);
+		System.out.println();
+	}
+	
+	// Call the Room and Player accessors used by every command
+	private static void benchmarkGetters() {
+		System.out.println("== Room/Player accessors ==");
+		final int rounds = 100000000;
+		Room room = new Room("Quaint sofa", "Small", Item.CREAM);
+		Player player = new Player();
+		player.addItem(Item.COFFEE);
+		long sink = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < rounds; i++) {
+				sink += room.getItem().ordinal() + room.getAdjective().length();
+				sink += player.checkCoffee() ? 1 : 0;
+			}
+			long elapsed = System.nanoTime() - start;
+			// The first pass only warms up the JIT
+			if (pass == 1) {
+				System.out.printf("getItem+getAdjective+checkCoffee: %6.2f ns/iteration (%d)%n", (double) elapsed / rounds, sink);
+			}
+		}
+		System.out.println();
+	}
+	
+	// Compare the heap used by a RoomListWorld and a CompactWorld holding the same rooms
+	private static void benchmarkMemory(int rooms) {
+		System.out.println("== World memory (" + rooms + " rooms) ==");
+		long listBytes = measureWorld(new RoomListWorld(), rooms);
+		long compactBytes = measureWorld(new CompactWorld(rooms), rooms);
+		System.out.printf("RoomListWorld: %8.1f MB (%5.1f bytes/room)%n", listBytes / 1e6, (double) listBytes / rooms);
+		System.out.printf("CompactWorld:  %8.1f MB (%5.1f bytes/room)%n", compactBytes / 1e6, (double) compactBytes / rooms);
+		System.out.printf("Reduction:     %8.1fx%n", (double) listBytes / compactBytes);
+		System.out.println();
+	}
+	
+	// Fill world with generated rooms and return the heap it retains
+	private static long measureWorld(World world, int rooms) {
+		String[] doors = { "Magenta", "Beige", "Dead", "Vivacious", "Purple", "Massive", "Smart", "Slim", "Sandy", "Minimalist" };
+		long before = usedHeap();
+		world.addFirstRoom(new Room("Furnishing 0", "Adjective 0", Item.NONE));
+		for (int i = 1; i < rooms; i++) {
+			world.addRoomAtNorth(new Room("Furnishing " + i, "Adjective " + i, Item.values()[i & 3]), doors[i % doors.length], doors[(i * 7) % doors.length]);
+		}
+		world.freeze();
+		long used = usedHeap() - before;
+		if (world.size() != rooms) {
+			throw new IllegalStateException("Built " + world.size() + " of " + rooms + " rooms");
+		}
+		return used;
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	// Output stream that discards its output and counts the bytes written
+	private static class CountingOutputStream extends OutputStream {
+		long count;
+		
+		@Override
+		public void write(int b) {
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
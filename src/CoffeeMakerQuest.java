@@ -1,3 +1,7 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public interface CoffeeMakerQuest {
 	public static CoffeeMakerQuest createInstance() {
 		if(Config.getBuggyCoffeeMakerQuest()) {
@@ -17,4 +21,69 @@ public interface CoffeeMakerQuest {
 	public boolean setCurrentRoom(Room room);
 	public String getInstructionsString();
 	public String processCommand(String cmd);
+	
+	// Allocation-free overloads; implementations that don't provide them fall back to processCommand(String)
+	public default String processCommand(CharSequence cmd) {
+		return processCommand(cmd.toString());
+	}
+	public default String processCommand(char cmd) {
+		return processCommand(String.valueOf(cmd));
+	}
+	
+	// Batched commands: run each line of commands in order, appending every response and a newline
+	// to out, until the game is over. A final line without a newline is a command too; a trailing
+	// carriage return is not part of a command. Single-character lines go to processCommand(char)
+	// and others to processCommand(CharSequence), so implementations speed up batches by
+	// overriding those. Return the number of commands run.
+	public default int processCommands(CharSequence commands, StringBuilder out) {
+		int count = 0;
+		int start = 0;
+		while (start < commands.length() && !isGameOver()) {
+			int end = lineEnd(commands, start);
+			out.append(processLine(commands, start, end)).append('\n');
+			count++;
+			start = end + 1;
+		}
+		return count;
+	}
+	
+	// As processCommands(CharSequence, StringBuilder), with the responses encoded as UTF-8 into out.
+	// Throws BufferOverflowException if a response does not fit; the command it answers has then run,
+	// and out ends with the response before it.
+	public default int processCommands(CharSequence commands, ByteBuffer out) {
+		int count = 0;
+		int start = 0;
+		while (start < commands.length() && !isGameOver()) {
+			int end = lineEnd(commands, start);
+			// Encoding the whole response at once is much faster than putting it a byte at a time
+			byte[] response = processLine(commands, start, end).getBytes(StandardCharsets.UTF_8);
+			if (out.remaining() < response.length + 1) {
+				throw new BufferOverflowException();
+			}
+			out.put(response).put((byte) '\n');
+			count++;
+			start = end + 1;
+		}
+		return count;
+	}
+	
+	// Index of the newline ending the line at start, or the length of commands if it is the last line
+	private static int lineEnd(CharSequence commands, int start) {
+		int end = start;
+		while (end < commands.length() && commands.charAt(end) != '\n') {
+			end++;
+		}
+		return end;
+	}
+	
+	// Run the command on the line from start to end, leaving out a trailing carriage return
+	private String processLine(CharSequence commands, int start, int end) {
+		if (end > start && commands.charAt(end - 1) == '\r') {
+			end--;
+		}
+		if (end - start == 1) {
+			return processCommand(commands.charAt(start));
+		}
+		return processCommand(commands.subSequence(start, end));
+	}
 }
\ No newline at end of file
@@ -9,15 +9,47 @@ enum Item {
 
 public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	
-	ArrayList<Room> rooms;
+	//Largest count of a counted move such as "N 500"; commands with larger counts are not valid
+	static final int MAX_MOVE_COUNT = 1000;
+	
+	//Full D command response (inventory followed by outcome) for every inventoryMask
+	static final String[] DRINK_RESPONSES = new String[8];
+	static {
+		for(int mask = 0; mask < DRINK_RESPONSES.length; mask++)
+		{
+			boolean coffee = (mask & Player.itemBit(Item.COFFEE)) != 0;
+			boolean cream = (mask & Player.itemBit(Item.CREAM)) != 0;
+			boolean sugar = (mask & Player.itemBit(Item.SUGAR)) != 0;
+			DRINK_RESPONSES[mask] = (Player.describeInventory(mask) + drinkOutcome(coffee, cream, sugar)).intern();
+		}
+	}
+	
+	World world;
 	Player player;
+	//Room at currentIndex, or null if it has not been requested since the player last moved
 	Room currentRoom;
+	int currentIndex;
 	boolean drank;
+	//Metrics to record commands in, or null if metrics are off
+	CommandMetrics metrics;
 	
 	CoffeeMakerQuestImpl() {
-		rooms = new ArrayList<Room>();
+		this(new RoomListWorld());
+	}
+	
+	/**
+	 * Create a new game in world. The world is shared, not copied, so any number
+	 * of games can be created from one frozen world in constant time. Rooms can
+	 * only be added through this game while the world is not frozen.
+	 * 
+	 * @param world the rooms of the house
+	 */
+	CoffeeMakerQuestImpl(World world) {
+		this.world = world;
 		currentRoom = null;
+		currentIndex = -1;
 		drank = false;
+		metrics = null;
 	}
 
 	/**
@@ -38,6 +70,16 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 		player = p;
 	}
 	
+	/**
+	 * Record every command of this game in metrics, or stop recording if metrics
+	 * is null. Metrics are off by default.
+	 * 
+	 * @param metrics the metrics to record commands in, or null
+	 */
+	public void setMetrics(CommandMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
 	/**
 	 * Add the first room in the game. If room is null or if this not the first room
 	 * (there are pre-exiting rooms), the room is not added and false is returned.
@@ -46,15 +88,11 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	 * @return true if successful, false otherwise
 	 */
 	public boolean addFirstRoom(Room room) {
-		//Check if room is null or arraylist is empty
-		if(room == null || !rooms.isEmpty())
-		{
-			return false;
-		}
-		
-		//Add room
-		rooms.add(room);
-		return true;
+		GameEvents.WorldBuild event = new GameEvents.WorldBuild();
+		event.begin();
+		boolean added = world.addFirstRoom(room);
+		event.commit("addFirstRoom", added ? 1 : 0, world.size());
+		return added;
 	}
 
 	/**
@@ -73,28 +111,20 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	 * @return true if successful, false otherwise
 	 */
 	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
-		//Check if either room, northDoor or southDoor are null and if the arraylist is empty
-		if(room == null || northDoor == null || southDoor == null || rooms.isEmpty())
-		{
-			return false;
-		}
-		
-		//Loop through arraylist and check for room uniqueness
-		for(int i = 0; i < rooms.size(); i++)
-		{
-			Room tempRoom = rooms.get(i);
-			if(tempRoom.getAdjective() == room.getAdjective() || tempRoom.getFurnishing() == room.getFurnishing())
-			{
-				return false;
-			}
-		}
-		//Set the northDoor of the northmost door to northDoor
-		rooms.get(rooms.size() - 1).setNorthDoor(northDoor);
-		//Add room to the list
-		rooms.add(room);
-		//Set the south door of the room we just added to southDoor
-		rooms.get(rooms.size() - 1).setSouthDoor(southDoor);
-		return true;
+		GameEvents.WorldBuild event = new GameEvents.WorldBuild();
+		event.begin();
+		boolean added = world.addRoomAtNorth(room, northDoor, southDoor);
+		event.commit("addRoomAtNorth", added ? 1 : 0, world.size());
+		return added;
+	}
+	
+	/**
+	 * Returns the world holding the rooms of this game.
+	 * 
+	 * @return the world
+	 */
+	World getWorld() {
+		return world;
 	}
 
 	/**
@@ -104,6 +134,11 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	 * @return room player is in, or null if not yet initialized
 	 */ 
 	public Room getCurrentRoom() {
+		//Only ask the world for the room when needed, as some worlds create it on demand
+		if(currentRoom == null && currentIndex >= 0)
+		{
+			currentRoom = world.getRoom(currentIndex);
+		}
 		return currentRoom;
 	}
 	
@@ -115,15 +150,71 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	 * @return true if successful, false otherwise
 	 */
 	public boolean setCurrentRoom(Room room) {
-		//Check if room is null or arraylist doesn't have the room
-		if(room == null || !rooms.contains(room))
+		//Check if room is null or the game doesn't have the room
+		int index = room == null ? -1 : world.indexOf(room);
+		if(index < 0)
 		{
 			return false;
 		}
+		currentIndex = index;
 		currentRoom = room;
 		return true;
 	}
 	
+	/**
+	 * Move the player to the room at the given position, north being higher
+	 * @param index position of the room in the house
+	 */
+	private void moveTo(int index)
+	{
+		if(index < 0 || index >= world.size())
+		{
+			throw new IndexOutOfBoundsException("Room " + index + " of " + world.size());
+		}
+		currentIndex = index;
+		currentRoom = null;
+	}
+	
+	/**
+	 * Returns the bitmask of the items the player holds
+	 * @return bitmask laid out as Player.getInventoryMask()
+	 */
+	int getInventoryMask()
+	{
+		return inventoryMask(player.checkCoffee(), player.checkCream(), player.checkSugar());
+	}
+	
+	/**
+	 * Returns the state of the game (room, inventory and whether it is over)
+	 * packed into a long, see GameState.
+	 * 
+	 * @return the packed state
+	 */
+	public long getState() {
+		return GameState.pack(currentIndex, getInventoryMask(), drank);
+	}
+	
+	/**
+	 * Put the game back in a state returned by getState for a game on the same
+	 * world. The room is only looked up again when it is next requested.
+	 * 
+	 * @param state the packed state
+	 */
+	public void setState(long state) {
+		int index = GameState.roomIndex(state);
+		if(index < 0)
+		{
+			currentIndex = -1;
+			currentRoom = null;
+		}
+		else
+		{
+			moveTo(index);
+		}
+		player.setInventoryMask(GameState.inventoryMask(state));
+		drank = GameState.drank(state);
+	}
+	
 	/**
 	 * Get the instructions string command prompt. It returns the following prompt:
 	 * " INSTRUCTIONS (N,S,L,I,D,H) > ".
@@ -141,12 +232,12 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	private String executeNCommand()
 	{
 		//If the user attempts to go north at the northmost room
-		if((rooms.indexOf(currentRoom)) == (rooms.size() - 1))
+		if(currentIndex == world.size() - 1)
 		{
 			return "";
 		}
 		//Set currentRoom to next room in arraylist
-		setCurrentRoom(rooms.get(rooms.indexOf(currentRoom) + 1));
+		moveTo(currentIndex + 1);
 		return "";
 	}
 	
@@ -157,12 +248,12 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	private String executeSCommand()
 	{
 		//If the user attempts to go south at the first room
-		if(rooms.indexOf(currentRoom) == 0)
+		if(currentIndex == 0)
 		{
 			return "A door in that direction does not exist.\n";
 		}
-		//Set currentRoom to next room in arraylist
-		setCurrentRoom(rooms.get(rooms.indexOf(currentRoom) - 1));
+		//Set currentRoom to previous room in arraylist
+		moveTo(currentIndex - 1);
 		return "";
 	}
 	
@@ -173,7 +264,7 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	private String executeLCommand()
 	{
 		//Get item for current room
-		Item item = currentRoom.getItem();
+		Item item = world.getItem(currentIndex);
 		switch(item) 
 		{
 			//Add corresponding item to player's inventory and return corresponding string
@@ -209,43 +300,60 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	{
 		//No matter what the game is now over
 		drank = true;
-		//Check what items the user has
-		boolean coffee = player.checkCoffee();
-		boolean cream = player.checkCream();
-		boolean sugar = player.checkSugar();
-		String result = player.getInventoryString();
+		//Look up the response for what items the user has
+		int mask = inventoryMask(player.checkCoffee(), player.checkCream(), player.checkSugar());
+		if(metrics != null)
+		{
+			metrics.recordOutcome(mask == DRINK_RESPONSES.length - 1);
+		}
+		return DRINK_RESPONSES[mask];
+	}
+	
+	/**
+	 * Builds the bitmask indexing DRINK_RESPONSES for the given inventory
+	 * @return bitmask laid out as Player.getInventoryMask()
+	 */
+	static int inventoryMask(boolean coffee, boolean cream, boolean sugar)
+	{
+		return (coffee ? Player.itemBit(Item.COFFEE) : 0) | (cream ? Player.itemBit(Item.CREAM) : 0) | (sugar ? Player.itemBit(Item.SUGAR) : 0);
+	}
+	
+	/**
+	 * Builds the outcome of drinking with the given inventory
+	 * @return outcome message, to be displayed after the inventory
+	 */
+	static String drinkOutcome(boolean coffee, boolean cream, boolean sugar)
+	{
 		//If the user has all 3, then they win
 		if(coffee && cream && sugar)
 		{
-			result += "\nYou drink the beverage and are ready to study!\nYou win!\n";
+			return "\nYou drink the beverage and are ready to study!\nYou win!\n";
 		}
 		//Display error message customized to the user's inventory
 		else if(!coffee && !cream && !sugar)
 		{
-			result += "\nYou drink the air, as you have no coffee, sugar, or cream.\nThe air is invigorating, but not invigorating enough. You cannot study.\nYou lose!\n";
+			return "\nYou drink the air, as you have no coffee, sugar, or cream.\nThe air is invigorating, but not invigorating enough. You cannot study.\nYou lose!\n";
 		}
 		else if(cream && sugar)
 		{
-			result += "\nYou drink the sweetened cream, but without caffeine you cannot study.\nYou lose!\n";
+			return "\nYou drink the sweetened cream, but without caffeine you cannot study.\nYou lose!\n";
 		}
 		else if(coffee && cream)
 		{
-			result += "\nWithout sugar, the coffee is too bitter. You cannot study.\nYou lose!\n";
+			return "\nWithout sugar, the coffee is too bitter. You cannot study.\nYou lose!\n";
 		}
-		else if((coffee && sugar) || coffee)
+		else if(coffee)
 		{
-			result += "\nWithout cream, you get an ulcer and cannot study.\nYou lose!\n";
+			return "\nWithout cream, you get an ulcer and cannot study.\nYou lose!\n";
 		}
 		else if(cream)
 		{
-			result += "\nYou drink the cream, but without caffeine, you cannot study.\nYou lose!\n";
+			return "\nYou drink the cream, but without caffeine, you cannot study.\nYou lose!\n";
 		}
-		else if(sugar)
+		else
 		{
-			result += "\nYou eat the sugar, but without caffeine, you cannot study.\nYou lose!\n";
+			return "\nYou eat the sugar, but without caffeine, you cannot study.\nYou lose!\n";
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -275,19 +383,170 @@ public class CoffeeMakerQuestImpl implements CoffeeMakerQuest {
 	 * @return response string for the command
 	 */
 	public String processCommand(String cmd) {
-		switch(cmd.toLowerCase())
+		return processCommand((CharSequence) cmd);
+	}
+	
+	/**
+	 * Processes the user command given in cmd without copying or lower-casing it.
+	 * Besides single-character commands, counted moves such as "N 500" or "S*1000"
+	 * are valid (see moveCount); anything else is answered with "What?".
+	 * 
+	 * @param cmd the user command
+	 * @return response string for the command
+	 */
+	public String processCommand(CharSequence cmd) {
+		if(cmd.length() == 1)
+		{
+			return processCommand(cmd.charAt(0));
+		}
+		GameEvents.Command event = GameEvents.Command.start();
+		int roomIndex = currentIndex;
+		int count = moveCount(cmd);
+		String response;
+		if(count < 0)
+		{
+			response = "What?";
+			if(metrics != null)
+			{
+				metrics.record(CommandMetrics.UNKNOWN, 0);
+			}
+		}
+		else if(metrics == null)
+		{
+			response = executeCountedMove(cmd.charAt(0), count);
+		}
+		else
+		{
+			long start = System.nanoTime();
+			response = executeCountedMove(cmd.charAt(0), count);
+			metrics.record(CommandMetrics.commandIndex(cmd.charAt(0)), System.nanoTime() - start);
+		}
+		if(event != null)
+		{
+			event.commit(cmd, roomIndex, response);
+		}
+		return response;
+	}
+	
+	/**
+	 * Returns the count of a counted move: N or S in either case, a space or '*',
+	 * and then a count from 1 to MAX_MOVE_COUNT. The count is kept small because
+	 * the response repeats the blocked response once for every step past the end
+	 * of the house.
+	 * @param cmd the user command
+	 * @return the count, or -1 if cmd is not a counted move
+	 */
+	static int moveCount(CharSequence cmd)
+	{
+		if(cmd.length() < 3)
+		{
+			return -1;
+		}
+		char direction = cmd.charAt(0);
+		if(direction != 'n' && direction != 'N' && direction != 's' && direction != 'S')
+		{
+			return -1;
+		}
+		if(cmd.charAt(1) != ' ' && cmd.charAt(1) != '*')
+		{
+			return -1;
+		}
+		int count = 0;
+		for(int i = 2; i < cmd.length(); i++)
+		{
+			char c = cmd.charAt(i);
+			if(c < '0' || c > '9')
+			{
+				return -1;
+			}
+			count = count * 10 + (c - '0');
+			if(count > MAX_MOVE_COUNT)
+			{
+				return -1;
+			}
+		}
+		return count == 0 ? -1 : count;
+	}
+	
+	/**
+	 * Executes count N or S commands, moving the player straight to the room they
+	 * lead to instead of one room at a time
+	 * @return the responses of the count single commands, concatenated
+	 */
+	private String executeCountedMove(char direction, int count)
+	{
+		boolean north = direction == 'n' || direction == 'N';
+		//The first step is a single one, so a game without a current room behaves as it does for single steps
+		String first = north ? executeNCommand() : executeSCommand();
+		int remaining = count - 1;
+		int target = north ? (int) Math.min((long) currentIndex + remaining, world.size() - 1) : Math.max(currentIndex - remaining, 0);
+		int blocked = remaining - Math.abs(target - currentIndex);
+		if(target != currentIndex)
+		{
+			moveTo(target);
+		}
+		if(blocked == 0)
+		{
+			return first;
+		}
+		//The player is now at the end of the house, where every further step gets the same response
+		String blockedResponse = north ? executeNCommand() : executeSCommand();
+		return first + blockedResponse.repeat(blocked);
+	}
+	
+	/**
+	 * Processes the single-character user command cmd. Both upper-case and
+	 * lower-case commands are accepted.
+	 * 
+	 * @param cmd the user command
+	 * @return response string for the command
+	 */
+	public String processCommand(char cmd) {
+		GameEvents.Command event = GameEvents.Command.start();
+		int roomIndex = currentIndex;
+		String response;
+		if(metrics == null)
+		{
+			response = executeCommand(cmd);
+		}
+		else
+		{
+			long start = System.nanoTime();
+			response = executeCommand(cmd);
+			metrics.record(CommandMetrics.commandIndex(cmd), System.nanoTime() - start);
+		}
+		if(event != null)
+		{
+			event.commit(cmd, roomIndex, response);
+		}
+		return response;
+	}
+	
+	/**
+	 * Executes the single-character command cmd
+	 * @return response for the command
+	 */
+	private String executeCommand(char cmd)
+	{
+		switch(cmd)
 		{
-			case "n":
+			case 'n':
+			case 'N':
 				return executeNCommand();
-			case "s":
+			case 's':
+			case 'S':
 				return executeSCommand();
-			case "l":
+			case 'l':
+			case 'L':
 				return executeLCommand();
-			case "i":
+			case 'i':
+			case 'I':
 				return executeICommand();
-			case "d":
+			case 'd':
+			case 'D':
 				return executeDCommand();
-			case "h":
+			case 'h':
+			case 'H':
 				return executeHCommand();
 			default:
 				return "What?";
@@ -150,6 +150,27 @@ public class CoffeeMakerQuestTest {
 		Mockito.verify(myRoom, Mockito.never()).setSouthDoor("South");
 	}
 	
+	/**
+	 * Test case for boolean addRoomAtNorth(Room room, String northDoor, String southDoor).
+	 * Preconditions: room1 ~ room6 have been added to cmq.
+	 *                Create a mock room whose adjective is a distinct String instance equal to "Dumb"
+	 *                with "Fake bed" furnishing and no item, and assign to myRoom.
+	 * Execution steps: Call cmq.addRoomAtNorth(myRoom, "North", "South").
+	 * Postconditions: Return value is false.
+	 *                 room6.setNorthDoor("North") is not called.
+	 */
+	@Test
+	public void testAddRoomAtNorthDuplicateByValue() {
+		// Set preconditions
+		Room myRoom = Mockito.mock(Room.class);
+		setupRoom(myRoom, new String("Dumb"), "Fake bed", Item.NONE);
+		
+		// Execute steps
+		boolean test = cmq.addRoomAtNorth(myRoom, "North", "South");
+		assertFalse("Adding a room with an equal but not identical adjective returned true", test);
+		Mockito.verify(room6, Mockito.never()).setNorthDoor("North");
+	}
+	
 	/**
 	 * Test case for Room getCurrentRoom().
 	 * Preconditions: room1 ~ room6 have been added to cmq.
@@ -190,6 +211,30 @@ public class CoffeeMakerQuestTest {
 		assertEquals("Tried to set current room to room3, but current room is different", secondTest, room3);
 	}
 	
+	/**
+	 * Test case for boolean setCurrentRoom(Room room) with a room that is not in the game.
+	 * Preconditions: room1 ~ room6 have been added to cmq.
+	 *                cmq.setCurrentRoom(room2) has been called.
+	 *                Create a mock room and assign to myRoom.
+	 * Execution steps: Call cmq.setCurrentRoom(myRoom).
+	 *                  Call cmq.processCommand("n").
+	 *                  Call cmq.getCurrentRoom().
+	 * Postconditions: Return value of cmq.setCurrentRoom(myRoom) is false.
+	 *                 Return value of cmq.getCurrentRoom() is room3.
+	 */
+	@Test
+	public void testSetCurrentRoomUnknown() {
+		// Set preconditions
+		cmq.setCurrentRoom(room2);
+		Room myRoom = Mockito.mock(Room.class);
+		
+		// Execute steps
+		boolean test = cmq.setCurrentRoom(myRoom);
+		assertFalse("Set current room to a room not in the game, but returned true", test);
+		cmq.processCommand("n");
+		assertEquals("Current room after failed set and going north from room2 was not room3", room3, cmq.getCurrentRoom());
+	}
+	
 	/**
 	 * Test case for String processCommand("I").
 	 * Preconditions: Player does not have any items.
@@ -211,6 +256,42 @@ public class CoffeeMakerQuestTest {
 		assertEquals("Attempt to check inventory on player with no items had incorrect result", master, test);
 	}
 	
+	/**
+	 * Test case for String processCommand("I") with a real Player.
+	 * Preconditions: Bug injection for Player is turned off.
+	 *                A new Player has been set with cmq.setPlayer.
+	 *                cmq.setCurrentRoom(room1) has been called and cmq.processCommand("L") has collected the cream.
+	 * Execution steps: Call cmq.processCommand("I").
+	 * Postconditions: Return value is "YOU HAVE NO COFFEE!\nYou have some fresh cream.\nYOU HAVE NO SUGAR!\n".
+	 *                 Return value of getInventoryMask() has only the cream bit set.
+	 */
+	@Test
+	public void testProcessCommandIRealPlayer() {
+		// Set preconditions
+		Config.setBuggyPlayer(false);
+		Player realPlayer = new Player();
+		cmq.setPlayer(realPlayer);
+		cmq.setCurrentRoom(room1);
+		cmq.processCommand("L");
+		
+		// Execute steps
+		String test = cmq.processCommand("I");
+		assertEquals("Inventory after collecting cream had incorrect result", "YOU HAVE NO COFFEE!\nYou have some fresh cream.\nYOU HAVE NO SUGAR!\n", test);
+		assertEquals("Inventory mask after collecting cream was incorrect", Player.itemBit(Item.CREAM), realPlayer.getInventoryMask());
+	}
+	
+	/**
+	 * Test case for Player.create() with bug injection turned on.
+	 * Preconditions: Bug injection for Player is turned on.
+	 * Execution steps: Call Player.create().getInventoryString().
+	 * Postconditions: UnsupportedOperationException is thrown.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCreateBuggyPlayer() {
+		// Execute steps
+		Player.create().getInventoryString();
+	}
+	
 	/**
 	 * Test case for String processCommand("l").
 	 * Preconditions: room1 ~ room6 have been added to cmq.
@@ -341,6 +422,302 @@ public class CoffeeMakerQuestTest {
 		assertTrue("Game over is not true after drinking with all items", gameTest);
 	}
 	
+	/**
+	 * Test case for String processCommand("D") for every combination of items.
+	 * Preconditions: Player has each of the 8 combinations of coffee, cream and sugar in turn.
+	 * Execution steps: Call cmq.processCommand("D") for each combination.
+	 * Postconditions: Return value is the inventory followed by the outcome message for that combination.
+	 */
+	@Test
+	public void testProcessCommandDAllCombinations() {
+		// Outcome messages indexed by coffee + 2 * cream + 4 * sugar
+		String[] outcomes = {
+			"\nYou drink the air, as you have no coffee, sugar, or cream.\nThe air is invigorating, but not invigorating enough. You cannot study.\nYou lose!\n",
+			"\nWithout cream, you get an ulcer and cannot study.\nYou lose!\n",
+			"\nYou drink the cream, but without caffeine, you cannot study.\nYou lose!\n",
+			"\nWithout sugar, the coffee is too bitter. You cannot study.\nYou lose!\n",
+			"\nYou eat the sugar, but without caffeine, you cannot study.\nYou lose!\n",
+			"\nWithout cream, you get an ulcer and cannot study.\nYou lose!\n",
+			"\nYou drink the sweetened cream, but without caffeine you cannot study.\nYou lose!\n",
+			"\nYou drink the beverage and are ready to study!\nYou win!\n"
+		};
+		
+		for (int mask = 0; mask < outcomes.length; mask++) {
+			// Set preconditions on mocked player
+			boolean coffee = (mask & 1) != 0;
+			boolean cream = (mask & 2) != 0;
+			boolean sugar = (mask & 4) != 0;
+			Mockito.when(player.checkCoffee()).thenReturn(coffee);
+			Mockito.when(player.checkCream()).thenReturn(cream);
+			Mockito.when(player.checkSugar()).thenReturn(sugar);
+			
+			// Master string to test against
+			String master = (coffee ? "You have a cup of delicious coffee.\n" : "YOU HAVE NO COFFEE!\n")
+					+ (cream ? "You have some fresh cream.\n" : "YOU HAVE NO CREAM!\n")
+					+ (sugar ? "You have some tasty sugar.\n" : "YOU HAVE NO SUGAR!\n")
+					+ outcomes[mask];
+			
+			// Execute steps
+			String test = cmq.processCommand("D");
+			assertEquals("Drinking with coffee=" + coffee + ", cream=" + cream + ", sugar=" + sugar + " had incorrect result", master, test);
+			assertTrue("Game over is not true after drinking", cmq.isGameOver());
+		}
+	}
+	
+	/**
+	 * Test case for games sharing one frozen World.
+	 * Preconditions: A World holding room1 and room2 has been built and frozen.
+	 *                Two CoffeeMakerQuestImpl games have been created from it, both starting in room1.
+	 * Execution steps: Call processCommand("N") on the first game.
+	 *                  Call addRoomAtNorth(room3, "North", "South") on the second game.
+	 * Postconditions: Current room of the first game is room2 and of the second game is room1.
+	 *                 Return value of addRoomAtNorth is false.
+	 */
+	@Test
+	public void testSharedFrozenWorld() {
+		// Set preconditions
+		World world = new RoomListWorld();
+		world.addFirstRoom(room1);
+		world.addRoomAtNorth(room2, "Magenta", "Massive");
+		world.freeze();
+		CoffeeMakerQuest first = new CoffeeMakerQuestImpl(world);
+		CoffeeMakerQuest second = new CoffeeMakerQuestImpl(world);
+		first.setCurrentRoom(room1);
+		second.setCurrentRoom(room1);
+		
+		// Execute steps
+		first.processCommand("N");
+		assertEquals("Going north in the first game did not reach room2", room2, first.getCurrentRoom());
+		assertEquals("Going north in the first game moved the second game", room1, second.getCurrentRoom());
+		assertFalse("Added a room to a frozen world", second.addRoomAtNorth(room3, "North", "South"));
+	}
+	
+	/**
+	 * Test case for a game on a CompactWorld.
+	 * Preconditions: A CompactWorld holding room1 ~ room3 has been built.
+	 *                A CoffeeMakerQuestImpl game has been created from it, starting in room1.
+	 * Execution steps: Call addRoomAtNorth with a room reusing the "Tight pizza" furnishing.
+	 *                  Call processCommand("N") twice and processCommand("L").
+	 *                  Call getCurrentRoom().getDescription().
+	 *                  Call indexOf with rooms equal to the Funny room except for the item or a door label.
+	 * Postconditions: Return value of addRoomAtNorth is false.
+	 *                 Return value of processCommand("L") reports the coffee and player.addItem(Item.COFFEE) is called.
+	 *                 The description is the one of the Refinanced room with its south door.
+	 *                 indexOf finds the room with the same doors and rejects the other item and the other door.
+	 */
+	@Test
+	public void testCompactWorld() {
+		// Set preconditions
+		World world = new CompactWorld();
+		world.addFirstRoom(room1);
+		world.addRoomAtNorth(room2, "Magenta", "Massive");
+		world.addRoomAtNorth(room3, "Beige", "Smart");
+		CoffeeMakerQuest game = new CoffeeMakerQuestImpl(world);
+		game.setPlayer(player);
+		assertTrue("Could not set current room to room1 in a compact world", game.setCurrentRoom(room1));
+		
+		// Execute steps
+		Room myRoom = Mockito.mock(Room.class);
+		setupRoom(myRoom, "Fake", "Tight pizza", Item.NONE);
+		assertFalse("Adding a duplicate room to a compact world returned true", game.addRoomAtNorth(myRoom, "North", "South"));
+		game.processCommand("N");
+		game.processCommand("N");
+		assertEquals("Attempt to find coffee in a compact world had incorrect result", "There might be something here...\nYou found some caffeinated coffee!\n", game.processCommand("L"));
+		Mockito.verify(player).addItem(Item.COFFEE);
+		assertEquals("Description of room3 in a compact world was incorrect", "You see a Refinanced room.\nIt has a Tight pizza.\nA Smart door leads South.\n", game.getCurrentRoom().getDescription());
+		Room funny = new Room("Sad record player", "Funny", Item.NONE);
+		funny.setNorthDoor("Beige");
+		funny.setSouthDoor("Massive");
+		assertEquals("Room with the same doors was not found in a compact world", 1, world.indexOf(funny));
+		funny.setNorthDoor("Smart");
+		assertEquals("Room with another north door was found in a compact world", -1, world.indexOf(funny));
+		assertEquals("Room with another item was found in a compact world", -1, world.indexOf(new Room("Sad record player", "Funny", Item.SUGAR)));
+	}
+	
+	/**
+	 * Test case for packed game states and undo.
+	 * Preconditions: A CoffeeMakerQuestImpl game holding room1 ~ room3 has been created with a real player, starting in room1.
+	 * Execution steps: Record the state, call processCommand("L"), record the state, call processCommand("N") twice,
+	 *                  processCommand("L") and processCommand("D").
+	 *                  Undo twice.
+	 * Postconditions: After the first undo the game is not over, the player is in room1 and holds only the cream.
+	 *                 After the second undo the player holds nothing and the state equals the first recorded one.
+	 *                 A third undo returns false.
+	 */
+	@Test
+	public void testStateHistoryUndo() {
+		// Set preconditions
+		CoffeeMakerQuestImpl game = new CoffeeMakerQuestImpl();
+		game.addFirstRoom(room1);
+		game.addRoomAtNorth(room2, "Magenta", "Massive");
+		game.addRoomAtNorth(room3, "Beige", "Smart");
+		game.setPlayer(new Player());
+		game.setCurrentRoom(room1);
+		StateHistory history = new StateHistory();
+		long start = game.getState();
+		
+		// Execute steps
+		history.record(game);
+		game.processCommand("L");
+		history.record(game);
+		game.processCommand("N");
+		game.processCommand("N");
+		game.processCommand("L");
+		game.processCommand("D");
+		assertTrue("Game is not over after drinking", game.isGameOver());
+		
+		assertTrue("First undo returned false", history.undo(game));
+		assertFalse("Game is still over after undo", game.isGameOver());
+		assertEquals("Undo did not return to room1", room1, game.getCurrentRoom());
+		assertEquals("Undo did not restore the inventory", "YOU HAVE NO COFFEE!\nYou have some fresh cream.\nYOU HAVE NO SUGAR!\n", game.processCommand("I"));
+		assertTrue("Second undo returned false", history.undo(game));
+		assertEquals("State after undoing everything differs from the start", start, game.getState());
+		assertFalse("Undo with no recorded state returned true", history.undo(game));
+	}
+	
+	/**
+	 * Test case for running a batch of newline-separated commands.
+	 * Preconditions: Two CoffeeMakerQuestImpl games holding room1 ~ room3 have been created with real players, starting in room1.
+	 * Execution steps: Call processCommands("N\nL\r\nX\nD\nN\n", out) on the first game with a StringBuilder.
+	 *                  Call processCommands with the same commands on the second game with a ByteBuffer.
+	 *                  Call processCommands("L", out) on a new game with a ByteBuffer of 4 bytes.
+	 * Postconditions: Both games ran 4 commands, stopping after D, and are over.
+	 *                 The StringBuilder holds every response followed by a newline; the ByteBuffer holds the same text.
+	 *                 The last call throws BufferOverflowException and leaves the ByteBuffer empty.
+	 */
+	@Test
+	public void testProcessCommandsBatched() {
+		// Set preconditions
+		CoffeeMakerQuestImpl[] games = new CoffeeMakerQuestImpl[3];
+		for (int i = 0; i < games.length; i++) {
+			games[i] = new CoffeeMakerQuestImpl();
+			games[i].addFirstRoom(room1);
+			games[i].addRoomAtNorth(room2, "Magenta", "Massive");
+			games[i].addRoomAtNorth(room3, "Beige", "Smart");
+			games[i].setPlayer(new Player());
+			games[i].setCurrentRoom(room1);
+		}
+		String commands = "N\nL\r\nX\nD\nN\n";
+		String master = "\nYou don't see anything out of the ordinary.\n\nWhat?\n" + CoffeeMakerQuestImpl.DRINK_RESPONSES[0] + "\n";
+		
+		// Execute step 1
+		StringBuilder text = new StringBuilder();
+		assertEquals("Number of commands run into a StringBuilder was incorrect", 4, games[0].processCommands(commands, text));
+		assertEquals("Batched responses were incorrect", master, text.toString());
+		assertTrue("Game was not over after D", games[0].isGameOver());
+		
+		// Execute step 2
+		java.nio.ByteBuffer bytes = java.nio.ByteBuffer.allocate(1024);
+		assertEquals("Number of commands run into a ByteBuffer was incorrect", 4, games[1].processCommands(commands, bytes));
+		assertEquals("Batched responses in the ByteBuffer were incorrect", master,
+				new String(bytes.array(), 0, bytes.position(), java.nio.charset.StandardCharsets.UTF_8));
+		assertTrue("Game was not over after D", games[1].isGameOver());
+		
+		// Execute step 3
+		java.nio.ByteBuffer small = java.nio.ByteBuffer.allocate(4);
+		try {
+			games[2].processCommands("L", small);
+			fail("Response longer than the ByteBuffer did not throw");
+		} catch (java.nio.BufferOverflowException e) {
+			assertEquals("Part of a response that did not fit was written", 0, small.position());
+		}
+	}
+	
+	/**
+	 * Test case for counted moves.
+	 * Preconditions: room1 ~ room6 have been added to cmq.
+	 *                cmq.setCurrentRoom(room2) has been called.
+	 * Execution steps: Call cmq.processCommand("N 3"), cmq.processCommand("n*10"), cmq.processCommand("S 7")
+	 *                  and cmq.processCommand("N*1000"), checking cmq.getCurrentRoom() after each.
+	 *                  Call cmq.setCurrentRoom(room3) and cmq.processCommand with "N 0", "N 1001" (over MAX_MOVE_COUNT),
+	 *                  "N -1", "N 2x" and "N2".
+	 * Postconditions: The player moves to room5, room6, room1 and room6.
+	 *                 "S 7" answers "A door in that direction does not exist.\n" twice, for the 2 steps past room1; the other moves answer "".
+	 *                 The other commands answer "What?" and do not move the player.
+	 */
+	@Test
+	public void testProcessCommandCountedMove() {
+		// Set preconditions
+		cmq.setCurrentRoom(room2);
+		
+		// Execute step 1
+		assertEquals("Counted move north had incorrect result", "", cmq.processCommand("N 3"));
+		assertEquals("Current room after N 3 was not room 5", room5, cmq.getCurrentRoom());
+		assertEquals("Counted move past the northern-most room had incorrect result", "", cmq.processCommand("n*10"));
+		assertEquals("Current room after n*10 was not room 6", room6, cmq.getCurrentRoom());
+		String blocked = "A door in that direction does not exist.\n";
+		assertEquals("Counted move past the first room had incorrect result", blocked + blocked, cmq.processCommand("S 7"));
+		assertEquals("Current room after S 7 was not room 1", room1, cmq.getCurrentRoom());
+		assertEquals("Counted move of the largest count had incorrect result", "", cmq.processCommand("N*1000"));
+		assertEquals("Current room after N*1000 was not room 6", room6, cmq.getCurrentRoom());
+		cmq.setCurrentRoom(room3);
+		
+		// Execute step 2
+		for (String cmd : new String[] { "N 0", "N 1001", "N -1", "N 2x", "N2" }) {
+			assertEquals("Invalid counted move " + cmd + " had incorrect result", "What?", cmq.processCommand(cmd));
+			assertEquals("Invalid counted move " + cmd + " moved the player", room3, cmq.getCurrentRoom());
+		}
+	}
+	
+	/**
+	 * Test case for houses generated room by room.
+	 * Preconditions: A GeneratedWorld of 1000000000 rooms with seed 7 and a cache of 16 rooms has been created.
+	 *                A CoffeeMakerQuestImpl game in the world has been created with a real player, starting in the first room.
+	 * Execution steps: Call getRoom(123456789) twice, and on a second world with the same seed.
+	 *                  Call indexOf with the room and with a new Room with the same adjective and furnishing.
+	 *                  Call getRoom for 100 rooms.
+	 *                  Call game.processCommand("N 1000") twice.
+	 *                  Count the items in the 1000 rooms of a GeneratedWorld of 1000 rooms.
+	 * Postconditions: The same Room is returned twice, and the second world generates an equal room.
+	 *                 Both rooms are found at 123456789, and their adjective and furnishing are in use.
+	 *                 At most 16 rooms are cached.
+	 *                 The player is in room 2000.
+	 *                 Exactly one coffee, one cream and one sugar are in the house, and the 1000 adjectives are distinct.
+	 */
+	@Test
+	public void testGeneratedWorld() {
+		// Set preconditions
+		GeneratedWorld world = new GeneratedWorld(1000000000, 7, 16);
+		CoffeeMakerQuestImpl game = new CoffeeMakerQuestImpl(world);
+		game.setPlayer(new Player());
+		game.setCurrentRoom(world.getRoom(0));
+		
+		// Execute step 1
+		Room room = world.getRoom(123456789);
+		assertSame("Cached room was not returned again", room, world.getRoom(123456789));
+		Room again = new GeneratedWorld(1000000000, 7).getRoom(123456789);
+		assertEquals("Same seed generated a different room", room.getDescription(), again.getDescription());
+		
+		// Execute step 2
+		assertEquals("Generated room was not found", 123456789, world.indexOf(room));
+		assertEquals("Equal room was not found", 123456789, world.indexOf(new Room(room.getFurnishing(), room.getAdjective(), room.getItem())));
+		assertTrue("Adjective of a generated room is not in use", world.usesAdjective(room.getAdjective()));
+		assertTrue("Furnishing of a generated room is not in use", world.usesFurnishing(room.getFurnishing()));
+		assertFalse("Adjective past the last room is in use", world.usesAdjective("Dusty 1000000000"));
+		
+		// Execute step 3
+		for (int i = 0; i < 100; i++) {
+			world.getRoom(i * 10000000);
+		}
+		assertTrue("Cache grew past its size", world.cachedRooms() <= 16);
+		
+		// Execute step 4
+		game.processCommand("N 1000");
+		game.processCommand("N 1000");
+		assertEquals("Player was not moved 2000 rooms north", world.getRoom(2000), game.getCurrentRoom());
+		
+		// Execute step 5
+		GeneratedWorld small = new GeneratedWorld(1000, 7);
+		int[] items = new int[4];
+		java.util.Set<String> adjectives = new java.util.HashSet<String>();
+		for (int i = 0; i < small.size(); i++) {
+			items[small.getItem(i).ordinal()]++;
+			adjectives.add(small.getRoom(i).getAdjective());
+		}
+		assertArrayEquals("Items were not placed once each", new int[] { 997, 1, 1, 1 }, items);
+		assertEquals("Adjectives were not distinct", 1000, adjectives.size());
+	}
+	
 	// TODO: Put in more unit tests of your own making to improve coverage!
 	/**
 	 * Test case for invalid command String "INVALID"
@@ -356,6 +733,30 @@ public class CoffeeMakerQuestTest {
 		assertEquals("Invalid command but result is not 'What?'", test, master);
 	}
 	
+	/**
+	 * Test case for the char and CharSequence overloads of processCommand.
+	 * Preconditions: room1 ~ room6 have been added to cmq.
+	 *                cmq.setCurrentRoom(room4) has been called.
+	 * Execution steps: Call cmq.processCommand('N').
+	 *                  Call cmq.processCommand(new StringBuilder("s")).
+	 *                  Call cmq.processCommand(new StringBuilder("ss")).
+	 *                  Call cmq.processCommand('x').
+	 * Postconditions: Return values are "", "", "What?" and "What?".
+	 *                 Return value of cmq.getCurrentRoom() is room4.
+	 */
+	@Test
+	public void testProcessCommandCharOverloads() {
+		// Set preconditions
+		cmq.setCurrentRoom(room4);
+		
+		// Execute steps
+		assertEquals("Going north with char command had incorrect result", "", cmq.processCommand('N'));
+		assertEquals("Going south with CharSequence command had incorrect result", "", cmq.processCommand(new StringBuilder("s")));
+		assertEquals("Multi-character CharSequence command was not rejected", "What?", cmq.processCommand(new StringBuilder("ss")));
+		assertEquals("Unknown char command was not rejected", "What?", cmq.processCommand('x'));
+		assertEquals("Current room after going north then south was not room4", room4, cmq.getCurrentRoom());
+	}
+	
 	/**
 	 * Test case for moving south when a door exists in that direction
 	 * Preconditions: room1 ~ room6 have been added to cmq.
@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of session events: sessions being opened and closed, the
+ * commands they accepted and periodic snapshots of their state. Appending only
+ * copies the record into a buffer; a background thread writes the buffer and
+ * forces it to disk, taking every record appended while the previous force was
+ * running in one batch (group commit). Callers that must not go on before their
+ * record is on disk wait with awaitDurable. Once MAX_BUFFERED bytes are waiting
+ * for the next batch, appending blocks until the committer takes them.
+ *
+ * Every record is an int length and an int CRC-32 of the body, followed by the
+ * body: a type byte, the session id as a long and the payload of the type. A
+ * record cut short by a crash fails its length or CRC check and ends the log.
+ */
+public class CommandJournal implements Closeable {
+	static final byte OPEN = 1;
+	static final byte COMMAND = 2;
+	static final byte SNAPSHOT = 3;
+	static final byte CLOSE = 4;
+	private static final int RECORD_HEADER = 4 + 4;
+	private static final int BODY_HEADER = 1 + 8;
+	// Longest command body accepted when reading; longer lengths mean a corrupt record
+	private static final int MAX_BODY = 1 << 20;
+	// Bytes of records appended while a batch is being written before appends wait for it
+	static final int MAX_BUFFERED = 4 << 20;
+	
+	/**
+	 * Receives the records of a journal in the order they were appended.
+	 */
+	public interface Listener {
+		void opened(long session);
+		
+		void command(long session, String cmd);
+		
+		void snapshot(long session, long state);
+		
+		void closed(long session);
+	}
+	
+	private final FileChannel channel;
+	private final Thread committer;
+	// Guards every field below
+	private final Object lock;
+	// Records appended and not yet handed to the committer
+	private ByteBuffer buffer;
+	// Buffer the committer is writing, swapped with buffer for every batch
+	private ByteBuffer writing;
+	private long appended;
+	private long durable;
+	private IOException failure;
+	private boolean closing;
+	private final CRC32 crc;
+	// Run by the committer after every batch reaches the disk and when writing fails
+	private volatile Runnable durableListener;
+	
+	/**
+	 * Open the journal at path for appending, creating the file if needed.
+	 *
+	 * @param path the journal file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public CommandJournal(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		lock = new Object();
+		buffer = ByteBuffer.allocate(1 << 16);
+		writing = ByteBuffer.allocate(1 << 16);
+		appended = 0;
+		durable = 0;
+		crc = new CRC32();
+		committer = new Thread("CommandJournal committer") {
+			public void run() {
+				commitLoop();
+			}
+		};
+		committer.setDaemon(true);
+		committer.start();
+	}
+	
+	// Append a record that session was opened and return its sequence number
+	public long appendOpen(long session) throws IOException {
+		return append(OPEN, session, null, 0);
+	}
+	
+	// Append a command accepted by session and return its sequence number
+	public long appendCommand(long session, CharSequence cmd) throws IOException {
+		return append(COMMAND, session, cmd.toString().getBytes(StandardCharsets.UTF_8), 0);
+	}
+	
+	// Append a snapshot of the state of session, packed as by GameState, and return its sequence number
+	public long appendSnapshot(long session, long state) throws IOException {
+		return append(SNAPSHOT, session, null, state);
+	}
+	
+	// Append a record that session was closed and return its sequence number
+	public long appendClose(long session) throws IOException {
+		return append(CLOSE, session, null, 0);
+	}
+	
+	private long append(byte type, long session, byte[] cmd, long state) throws IOException {
+		int bodyLength = BODY_HEADER + (type == COMMAND ? cmd.length : type == SNAPSHOT ? 8 : 0);
+		synchronized (lock) {
+			// A record larger than the limit is still taken once nothing else is waiting
+			while (buffer.position() > 0 && buffer.position() + RECORD_HEADER + bodyLength > MAX_BUFFERED && failure == null && !closing) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the journal");
+				}
+			}
+			if (failure != null) {
+				throw new IOException("Journal could not be written", failure);
+			}
+			if (closing) {
+				throw new IOException("Journal is closed");
+			}
+			if (buffer.remaining() < RECORD_HEADER + bodyLength) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + RECORD_HEADER + bodyLength));
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			int start = buffer.position();
+			buffer.putInt(bodyLength);
+			buffer.putInt(0);
+			buffer.put(type);
+			buffer.putLong(session);
+			if (type == COMMAND) {
+				buffer.put(cmd);
+			}
+			else if (type == SNAPSHOT) {
+				buffer.putLong(state);
+			}
+			crc.reset();
+			crc.update(buffer.array(), start + RECORD_HEADER, bodyLength);
+			buffer.putInt(start + 4, (int) crc.getValue());
+			appended++;
+			lock.notifyAll();
+			return appended;
+		}
+	}
+	
+	/**
+	 * Run listener on the committer thread every time a batch of records has
+	 * been forced to disk, and once if the journal cannot be written. The
+	 * listener must not block; it is meant to wake up a thread that then calls
+	 * getDurableSequence.
+	 *
+	 * @param listener the listener, or null for none
+	 */
+	public void setDurableListener(Runnable listener) {
+		durableListener = listener;
+	}
+	
+	/**
+	 * Return the sequence number of the last record forced to disk; every record
+	 * before it is on disk too.
+	 *
+	 * @return the sequence number, 0 if no record is on disk yet
+	 * @throws IOException if the journal could not be written
+	 */
+	public long getDurableSequence() throws IOException {
+		synchronized (lock) {
+			if (failure != null) {
+				throw new IOException("Journal could not be written", failure);
+			}
+			return durable;
+		}
+	}
+	
+	/**
+	 * Wait until the record with the given sequence number, and every record
+	 * before it, has been forced to disk.
+	 *
+	 * @param sequence sequence number returned by an append method
+	 * @throws IOException          if the journal could not be written
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void awaitDurable(long sequence) throws IOException, InterruptedException {
+		synchronized (lock) {
+			while (durable < sequence && failure == null) {
+				lock.wait();
+			}
+			if (failure != null && durable < sequence) {
+				throw new IOException("Journal could not be written", failure);
+			}
+		}
+	}
+	
+	// Write and force every batch of records until the journal is closed
+	private void commitLoop() {
+		while (true) {
+			long batchEnd;
+			synchronized (lock) {
+				while (buffer.position() == 0 && !closing) {
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						// Nothing appended from now on would be written, so fail every later append
+						failure = new InterruptedIOException("Journal committer was interrupted");
+						lock.notifyAll();
+						return;
+					}
+				}
+				if (buffer.position() == 0) {
+					return;
+				}
+				ByteBuffer batch = buffer;
+				buffer = writing;
+				writing = batch;
+				batchEnd = appended;
+				// Appends waiting for room can go on
+				lock.notifyAll();
+			}
+			try {
+				writing.flip();
+				while (writing.hasRemaining()) {
+					channel.write(writing);
+				}
+				channel.force(false);
+				writing.clear();
+			} catch (IOException e) {
+				synchronized (lock) {
+					failure = e;
+					lock.notifyAll();
+				}
+				notifyDurable();
+				return;
+			}
+			synchronized (lock) {
+				durable = batchEnd;
+				lock.notifyAll();
+			}
+			notifyDurable();
+		}
+	}
+	
+	private void notifyDurable() {
+		Runnable listener = durableListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+	
+	/**
+	 * Force every appended record to disk and close the file.
+	 *
+	 * @throws IOException if the remaining records could not be written
+	 */
+	public void close() throws IOException {
+		synchronized (lock) {
+			closing = true;
+			lock.notifyAll();
+		}
+		try {
+			committer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		synchronized (lock) {
+			if (failure != null) {
+				throw new IOException("Journal could not be written", failure);
+			}
+		}
+	}
+	
+	/**
+	 * Read every complete record of the journal at path, in order. Reading stops
+	 * at the first record that is cut short or fails its CRC check, as left by a
+	 * crash in the middle of a write. A missing file has no records.
+	 *
+	 * @param path     the journal file
+	 * @param listener receives every record
+	 * @return the number of records read
+	 * @throws IOException if the file cannot be read
+	 */
+	public static long read(Path path, Listener listener) throws IOException {
+		if (!Files.exists(path)) {
+			return 0;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+		long records = 0;
+		CRC32 crc = new CRC32();
+		try {
+			byte[] body = new byte[64];
+			while (true) {
+				int length;
+				int checksum;
+				try {
+					length = in.readInt();
+					checksum = in.readInt();
+					if (length < BODY_HEADER || length > MAX_BODY) {
+						break;
+					}
+					if (length > body.length) {
+						body = new byte[Math.max(length, body.length * 2)];
+					}
+					in.readFully(body, 0, length);
+				} catch (EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(body, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+				byte type = record.get();
+				long session = record.getLong();
+				if (type == OPEN) {
+					listener.opened(session);
+				}
+				else if (type == COMMAND) {
+					listener.command(session, new String(body, BODY_HEADER, length - BODY_HEADER, StandardCharsets.UTF_8));
+				}
+				else if (type == SNAPSHOT && record.remaining() == 8) {
+					listener.snapshot(session, record.getLong());
+				}
+				else if (type == CLOSE) {
+					listener.closed(session);
+				}
+				else {
+					break;
+				}
+				records++;
+			}
+		} finally {
+			in.close();
+		}
+		return records;
+	}
+}
@@ -0,0 +1,172 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class CommandJournalTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for recovering journaled sessions.
+	 * Preconditions: A SessionManager journaling to a temporary file with a snapshot every 2 commands.
+	 * Execution steps: Open two sessions; in the first call processCommand with "L", "N", "N" and "L",
+	 *                  close the second and close the manager without closing the first.
+	 *                  Append a partly written record to the journal.
+	 *                  Create a SessionManager from the journal and resume the first session.
+	 * Postconditions: Only the first session is recovered.
+	 *                 The resumed session is in the Refinanced room and holds the cream and the coffee.
+	 */
+	@Test
+	public void testSessionJournalRecovery() throws Exception {
+		// Set preconditions
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("sessions", ".journal");
+		try {
+			SessionManager manager = new SessionManager(file, 2);
+			CoffeeMakerQuest first = manager.openSession();
+			CoffeeMakerQuest second = manager.openSession();
+			
+			// Execute steps
+			first.processCommand("L");
+			first.processCommand("N");
+			first.processCommand("N");
+			first.processCommand("L");
+			manager.closeSession(second);
+			manager.close();
+			java.nio.file.Files.write(file, new byte[] { 0, 0, 0, 20, 1, 2 }, java.nio.file.StandardOpenOption.APPEND);
+			SessionManager restarted = new SessionManager(file, 2);
+			long id = manager.getSessionId(first);
+			assertEquals("Recovered sessions were incorrect", java.util.Collections.singleton(id), restarted.getRecoveredSessions());
+			CoffeeMakerQuest resumed = restarted.resumeSession(id);
+			
+			assertEquals("Resumed session is in the wrong room", "Refinanced", resumed.getCurrentRoom().getAdjective());
+			assertEquals("Resumed session has the wrong inventory", "You have a cup of delicious coffee.\nYou have some fresh cream.\nYOU HAVE NO SUGAR!\n", resumed.processCommand("I"));
+			restarted.close();
+		} finally {
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+	
+	/**
+	 * Test case for journaling setPlayer and setCurrentRoom.
+	 * Preconditions: A SessionManager journaling to a temporary file with a snapshot every 100 commands.
+	 * Execution steps: Open a session, call processCommand with "N" and "S" and setCurrentRoom with the room north of the first one.
+	 *                  Call setPlayer with a player holding the sugar and close the manager.
+	 *                  Create a SessionManager from the journal and resume the session.
+	 * Postconditions: The resumed session is in the room north of the first one and holds only the sugar.
+	 */
+	@Test
+	public void testSessionJournalSetters() throws Exception {
+		// Set preconditions
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("sessions", ".journal");
+		try {
+			SessionManager manager = new SessionManager(file, 100);
+			CoffeeMakerQuest session = manager.openSession();
+			
+			// Execute steps
+			session.processCommand("N");
+			Room north = session.getCurrentRoom();
+			session.processCommand("S");
+			session.setCurrentRoom(north);
+			Player player = new Player();
+			player.addItem(Item.SUGAR);
+			session.setPlayer(player);
+			long id = manager.getSessionId(session);
+			manager.close();
+			SessionManager restarted = new SessionManager(file, 100);
+			CoffeeMakerQuest resumed = restarted.resumeSession(id);
+			
+			assertEquals("Resumed session is in the wrong room", north.getAdjective(), resumed.getCurrentRoom().getAdjective());
+			assertEquals("Resumed session has the wrong inventory", "YOU HAVE NO COFFEE!\nYOU HAVE NO CREAM!\nYou have some tasty sugar.\n", resumed.processCommand("I"));
+			restarted.close();
+		} finally {
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+	
+	/**
+	 * Test case for appending more than the journal buffers.
+	 * Preconditions: A CommandJournal appending to a temporary file.
+	 * Execution steps: Append 3 times MAX_BUFFERED bytes of 1000-byte commands without waiting, close the journal and read it.
+	 * Postconditions: Every command is read back, in order.
+	 */
+	@Test
+	public void testJournalBoundedBuffer() throws Exception {
+		// Set preconditions
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("bounded", ".journal");
+		try {
+			CommandJournal journal = new CommandJournal(file);
+			char[] filler = new char[1000];
+			java.util.Arrays.fill(filler, 'N');
+			String cmd = new String(filler);
+			int count = 3 * CommandJournal.MAX_BUFFERED / cmd.length();
+			
+			// Execute steps
+			for (int i = 0; i < count; i++) {
+				journal.appendCommand(i, cmd);
+			}
+			journal.close();
+			final long[] next = { 0 };
+			long records = CommandJournal.read(file, new CommandJournal.Listener() {
+				public void opened(long session) {
+				}
+				
+				public void command(long session, String read) {
+					assertEquals("Command was read out of order", next[0]++, session);
+				}
+				
+				public void snapshot(long session, long state) {
+				}
+				
+				public void closed(long session) {
+				}
+			});
+			
+			assertEquals("Not every command was read back", count, records);
+		} finally {
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+	
+	/**
+	 * Test case for waiting until journaled commands are on disk.
+	 * Preconditions: A SessionManager journaling to a temporary file, with a durable listener counting down a latch.
+	 * Execution steps: Open a session, call processCommand("N") and wait for isDurable to return true.
+	 * Postconditions: The listener has run and the session becomes durable.
+	 *                 A session of a SessionManager without a journal is always durable.
+	 */
+	@Test
+	public void testSessionDurable() throws Exception {
+		// Set preconditions
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("durable", ".journal");
+		try {
+			SessionManager manager = new SessionManager(file, 100);
+			final java.util.concurrent.CountDownLatch forced = new java.util.concurrent.CountDownLatch(1);
+			manager.setDurableListener(new Runnable() {
+				public void run() {
+					forced.countDown();
+				}
+			});
+			CoffeeMakerQuest session = manager.openSession();
+			
+			// Execute steps
+			session.processCommand("N");
+			assertTrue("Durable listener did not run", forced.await(10, java.util.concurrent.TimeUnit.SECONDS));
+			long deadline = System.nanoTime() + 10000000000L;
+			while (!manager.isDurable(session) && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			
+			assertTrue("Journaled command did not become durable", manager.isDurable(session));
+			SessionManager plain = new SessionManager();
+			assertTrue("Session without a journal is not durable", plain.isDurable(plain.openSession()));
+			manager.close();
+		} finally {
+			java.nio.file.Files.deleteIfExists(file);
+		}
+	}
+}
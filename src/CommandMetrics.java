@@ -0,0 +1,175 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for processCommand, and win/lose counts for
+ * the D command. A game only records metrics once it has been given a
+ * CommandMetrics with CoffeeMakerQuestImpl.setMetrics; without one the only
+ * cost is a null check per command. One CommandMetrics can be shared by any
+ * number of games and threads: counters are LongAdders, which stripe updates
+ * across cells under contention, and histograms use atomic buckets.
+ */
+public class CommandMetrics implements CommandMetricsMBean {
+	static final int NORTH = 0;
+	static final int SOUTH = 1;
+	static final int LOOK = 2;
+	static final int INVENTORY = 3;
+	static final int DRINK = 4;
+	static final int HELP = 5;
+	static final int UNKNOWN = 6;
+	private static final String[] NAMES = { "N", "S", "L", "I", "D", "H", "unknown" };
+	
+	private final LongAdder[] counts;
+	private final LatencyHistogram[] latencies;
+	private final LongAdder wins;
+	private final LongAdder losses;
+	
+	public CommandMetrics() {
+		counts = new LongAdder[NAMES.length];
+		latencies = new LatencyHistogram[NAMES.length];
+		for (int i = 0; i < NAMES.length; i++) {
+			counts[i] = new LongAdder();
+			latencies[i] = new LatencyHistogram();
+		}
+		wins = new LongAdder();
+		losses = new LongAdder();
+	}
+	
+	// Return the counter index of a single-character command
+	static int commandIndex(char cmd) {
+		switch (cmd) {
+			case 'n':
+			case 'N':
+				return NORTH;
+			case 's':
+			case 'S':
+				return SOUTH;
+			case 'l':
+			case 'L':
+				return LOOK;
+			case 'i':
+			case 'I':
+				return INVENTORY;
+			case 'd':
+			case 'D':
+				return DRINK;
+			case 'h':
+			case 'H':
+				return HELP;
+			default:
+				return UNKNOWN;
+		}
+	}
+	
+	// Count one command with the given counter index and how long it took
+	void record(int command, long nanos) {
+		counts[command].increment();
+		latencies[command].record(nanos);
+	}
+	
+	// Count the outcome of a D command
+	void recordOutcome(boolean won) {
+		(won ? wins : losses).increment();
+	}
+	
+	/**
+	 * Register this object with the platform MBean server so the metrics can be
+	 * read with JConsole or any other JMX client.
+	 *
+	 * @param name the name property of the MBean, to tell several servers apart
+	 * @return the object name the metrics were registered under
+	 * @throws JMException if the name is taken or the MBean cannot be registered
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("CoffeeMakerQuest:type=CommandMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+	
+	public long getNorthCount() {
+		return counts[NORTH].sum();
+	}
+	
+	public long getSouthCount() {
+		return counts[SOUTH].sum();
+	}
+	
+	public long getLookCount() {
+		return counts[LOOK].sum();
+	}
+	
+	public long getInventoryCount() {
+		return counts[INVENTORY].sum();
+	}
+	
+	public long getDrinkCount() {
+		return counts[DRINK].sum();
+	}
+	
+	public long getHelpCount() {
+		return counts[HELP].sum();
+	}
+	
+	public long getUnknownCount() {
+		return counts[UNKNOWN].sum();
+	}
+	
+	public long getWins() {
+		return wins.sum();
+	}
+	
+	public long getLosses() {
+		return losses.sum();
+	}
+	
+	public long getLatencyP50() {
+		return overall().percentile(0.50);
+	}
+	
+	public long getLatencyP99() {
+		return overall().percentile(0.99);
+	}
+	
+	public long getLatencyMax() {
+		return overall().max();
+	}
+	
+	// Merge the histograms of every command
+	private LatencyHistogram overall() {
+		LatencyHistogram overall = new LatencyHistogram();
+		overall.add(latencies);
+		return overall;
+	}
+	
+	public String dump() {
+		StringBuilder out = new StringBuilder();
+		out.append(String.format("%-8s %12s %10s %10s %10s%n", "command", "count", "p50 ns", "p99 ns", "max ns"));
+		for (int i = 0; i < NAMES.length; i++) {
+			LatencyHistogram latency = latencies[i];
+			out.append(String.format("%-8s %12d %10d %10d %10d%n", NAMES[i], counts[i].sum(), latency.percentile(0.50),
+					latency.percentile(0.99), latency.max()));
+		}
+		LatencyHistogram overall = overall();
+		out.append(String.format("%-8s %12d %10d %10d %10d%n", "all", overall.count(), overall.percentile(0.50),
+				overall.percentile(0.99), overall.max()));
+		out.append(String.format("wins: %d, losses: %d%n", wins.sum(), losses.sum()));
+		return out.toString();
+	}
+	
+	public void reset() {
+		for (int i = 0; i < NAMES.length; i++) {
+			counts[i].reset();
+			latencies[i].reset();
+		}
+		wins.reset();
+		losses.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return dump();
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * JMX view of CommandMetrics. Latencies are in nanoseconds and cover every
+ * command; per-command latencies are in dump.
+ */
+public interface CommandMetricsMBean {
+	long getNorthCount();
+	
+	long getSouthCount();
+	
+	long getLookCount();
+	
+	long getInventoryCount();
+	
+	long getDrinkCount();
+	
+	long getHelpCount();
+	
+	long getUnknownCount();
+	
+	long getWins();
+	
+	long getLosses();
+	
+	long getLatencyP50();
+	
+	long getLatencyP99();
+	
+	long getLatencyMax();
+	
+	// Return the plain-text report of all metrics
+	String dump();
+	
+	// Set every counter and histogram back to zero
+	void reset();
+}
@@ -0,0 +1,65 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class CommandMetricsTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for command metrics.
+	 * Preconditions: A CoffeeMakerQuestImpl game holding the Small and Funny rooms has been created, starting in the Small room.
+	 *                The player has coffee, cream and sugar.
+	 *                A CommandMetrics has been given to the game and registered with JMX.
+	 * Execution steps: Call processCommand with "N", "n", "h", "XYZ", "q" and "D".
+	 *                  Call setMetrics(null) and processCommand("N").
+	 * Postconditions: There are 2 N, 1 H, 1 D and 2 unknown commands, 1 win and no losses.
+	 *                 The NorthCount JMX attribute is 2 and the dump reports the win.
+	 *                 The last command is not counted.
+	 */
+	@Test
+	public void testCommandMetrics() throws Exception {
+		// Set preconditions
+		CoffeeMakerQuestImpl game = new CoffeeMakerQuestImpl();
+		Room first = Room.create("Quaint sofa", "Small", Item.CREAM);
+		game.addFirstRoom(first);
+		game.addRoomAtNorth(Room.create("Sad record player", "Funny", Item.NONE), "Magenta", "Massive");
+		Player player = Player.create();
+		player.addItem(Item.COFFEE);
+		player.addItem(Item.CREAM);
+		player.addItem(Item.SUGAR);
+		game.setPlayer(player);
+		game.setCurrentRoom(first);
+		CommandMetrics metrics = new CommandMetrics();
+		game.setMetrics(metrics);
+		javax.management.ObjectName name = metrics.register("testCommandMetrics");
+		
+		// Execute steps
+		try {
+			game.processCommand("N");
+			game.processCommand("n");
+			game.processCommand("h");
+			game.processCommand("XYZ");
+			game.processCommand("q");
+			game.processCommand("D");
+			game.setMetrics(null);
+			game.processCommand("N");
+			
+			assertEquals("N commands were not counted", 2, metrics.getNorthCount());
+			assertEquals("H commands were not counted", 1, metrics.getHelpCount());
+			assertEquals("D commands were not counted", 1, metrics.getDrinkCount());
+			assertEquals("Unknown commands were not counted", 2, metrics.getUnknownCount());
+			assertEquals("Win was not counted", 1, metrics.getWins());
+			assertEquals("A loss was counted", 0, metrics.getLosses());
+			assertEquals("NorthCount JMX attribute was incorrect", 2L, java.lang.management.ManagementFactory.getPlatformMBeanServer().getAttribute(name, "NorthCount"));
+			assertTrue("Dump did not report the win", metrics.dump().contains("wins: 1, losses: 0"));
+		} finally {
+			java.lang.management.ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * World storing its rooms as parallel primitive columns instead of Room
+ * objects. Adjectives, furnishings and door labels are kept once each in a
+ * StringTable and rooms refer to them by id. A Room is only created when a game
+ * asks for one with getRoom; the most recently requested room is cached.
+ *
+ * Rooms with a null adjective or furnishing are not added. Rooms are looked up
+ * by value in indexOf (adjectives are unique, so the adjective identifies the
+ * room), since rooms returned by getRoom are views rather than stored objects.
+ * The furnishing and item must match as well, and so must any door label the
+ * given room has; a room without door labels, such as one a caller added before
+ * the world assigned its doors, matches whatever doors the world stored.
+ */
+public class CompactWorld extends World {
+	private static final Item[] ITEMS = Item.values();
+	private static final int NO_DOOR = -1;
+	
+	private final StringTable strings;
+	private int[] adjectives;
+	private int[] furnishings;
+	private byte[] items;
+	private int[] northDoors;
+	private int[] southDoors;
+	private int size;
+	// Room index + 1 of the room using each string id as its adjective, 0 if unused
+	private int[] adjectiveRooms;
+	// String ids used as a furnishing
+	private final BitSet usedFurnishings;
+	// Most recently materialised room
+	private volatile RoomView lastView;
+	
+	public CompactWorld() {
+		this(16);
+	}
+	
+	// Class constructor reserving space for the given number of rooms
+	public CompactWorld(int expectedRooms) {
+		int capacity = Math.max(expectedRooms, 1);
+		strings = new StringTable();
+		adjectives = new int[capacity];
+		furnishings = new int[capacity];
+		items = new byte[capacity];
+		northDoors = new int[capacity];
+		southDoors = new int[capacity];
+		size = 0;
+		adjectiveRooms = new int[capacity];
+		usedFurnishings = new BitSet();
+	}
+	
+	@Override
+	public boolean addFirstRoom(Room room) {
+		//Check if room is null, the world is frozen or there are already rooms
+		if(room == null || isFrozen() || size != 0)
+		{
+			return false;
+		}
+		String adjective = room.getAdjective();
+		String furnishing = room.getFurnishing();
+		if(adjective == null || furnishing == null)
+		{
+			return false;
+		}
+		append(adjective, furnishing, room.getItem(), NO_DOOR);
+		return true;
+	}
+	
+	@Override
+	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
+		//Check if either room, northDoor or southDoor are null and if the world is frozen or empty
+		if(room == null || northDoor == null || southDoor == null || isFrozen() || size == 0)
+		{
+			return false;
+		}
+		
+		//Check for room uniqueness against the adjective and furnishing ids already in use
+		String adjective = room.getAdjective();
+		String furnishing = room.getFurnishing();
+		if(adjective == null || furnishing == null)
+		{
+			return false;
+		}
+		if(usesAdjective(adjective) || usesFurnishing(furnishing))
+		{
+			return false;
+		}
+		northDoors[size - 1] = strings.intern(northDoor);
+		append(adjective, furnishing, room.getItem(), strings.intern(southDoor));
+		return true;
+	}
+	
+	@Override
+	public boolean usesAdjective(String adjective) {
+		int adjectiveId = adjective == null ? -1 : strings.find(adjective);
+		return adjectiveId >= 0 && adjectiveId < adjectiveRooms.length && adjectiveRooms[adjectiveId] != 0;
+	}
+	
+	@Override
+	public boolean usesFurnishing(String furnishing) {
+		int furnishingId = furnishing == null ? -1 : strings.find(furnishing);
+		return furnishingId >= 0 && usedFurnishings.get(furnishingId);
+	}
+	
+	private void append(String adjective, String furnishing, Item item, int southDoor) {
+		if(size == adjectives.length)
+		{
+			int capacity = adjectives.length * 2;
+			adjectives = Arrays.copyOf(adjectives, capacity);
+			furnishings = Arrays.copyOf(furnishings, capacity);
+			items = Arrays.copyOf(items, capacity);
+			northDoors = Arrays.copyOf(northDoors, capacity);
+			southDoors = Arrays.copyOf(southDoors, capacity);
+		}
+		int adjectiveId = strings.intern(adjective);
+		int furnishingId = strings.intern(furnishing);
+		if(adjectiveId >= adjectiveRooms.length)
+		{
+			adjectiveRooms = Arrays.copyOf(adjectiveRooms, Math.max(adjectiveId + 1, adjectiveRooms.length * 2));
+		}
+		adjectiveRooms[adjectiveId] = size + 1;
+		usedFurnishings.set(furnishingId);
+		adjectives[size] = adjectiveId;
+		furnishings[size] = furnishingId;
+		items[size] = (byte) item.ordinal();
+		northDoors[size] = NO_DOOR;
+		southDoors[size] = southDoor;
+		size++;
+		lastView = null;
+	}
+	
+	/**
+	 * Stop accepting rooms and release the spare capacity of the columns.
+	 *
+	 * @return this world
+	 */
+	@Override
+	public World freeze() {
+		adjectives = Arrays.copyOf(adjectives, size);
+		furnishings = Arrays.copyOf(furnishings, size);
+		items = Arrays.copyOf(items, size);
+		northDoors = Arrays.copyOf(northDoors, size);
+		southDoors = Arrays.copyOf(southDoors, size);
+		adjectiveRooms = Arrays.copyOf(adjectiveRooms, strings.size());
+		strings.trimToSize();
+		return super.freeze();
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Room getRoom(int index) {
+		if(index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Room " + index + " of " + size);
+		}
+		RoomView view = lastView;
+		if(view != null && view.index == index)
+		{
+			return view.room;
+		}
+		Room room = new Room(strings.get(furnishings[index]), strings.get(adjectives[index]), ITEMS[items[index]]);
+		if(northDoors[index] != NO_DOOR)
+		{
+			room.setNorthDoor(strings.get(northDoors[index]));
+		}
+		if(southDoors[index] != NO_DOOR)
+		{
+			room.setSouthDoor(strings.get(southDoors[index]));
+		}
+		lastView = new RoomView(index, room);
+		return room;
+	}
+	
+	@Override
+	public Item getItem(int index) {
+		return ITEMS[items[index]];
+	}
+	
+	@Override
+	public int indexOf(Room room) {
+		if(room == null)
+		{
+			return -1;
+		}
+		RoomView view = lastView;
+		if(view != null && view.room == room)
+		{
+			return view.index;
+		}
+		String adjective = room.getAdjective();
+		int adjectiveId = adjective == null ? -1 : strings.find(adjective);
+		if(adjectiveId < 0 || adjectiveId >= adjectiveRooms.length || adjectiveRooms[adjectiveId] == 0)
+		{
+			return -1;
+		}
+		int index = adjectiveRooms[adjectiveId] - 1;
+		if(!strings.matches(furnishings[index], room.getFurnishing()) || ITEMS[items[index]] != room.getItem())
+		{
+			return -1;
+		}
+		return doorMatches(northDoors[index], room.getNorthDoor()) && doorMatches(southDoors[index], room.getSouthDoor()) ? index : -1;
+	}
+	
+	// Whether the door label of a room looked up by value agrees with the stored door id
+	private boolean doorMatches(int doorId, String door) {
+		return door == null || (doorId != NO_DOOR && strings.matches(doorId, door));
+	}
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity set of non-negative longs that any number of threads can add
+ * to at once. Values are kept in a single open-addressing AtomicLongArray and
+ * claimed with compare-and-set, so adding never locks or allocates.
+ */
+class ConcurrentLongSet {
+	// Largest maxSize accepted; the slots of a set this large take 8 GB
+	static final int MAX_SIZE = 1 << 29;
+	// Slots hold value + 1, so that the initial 0 marks an empty slot
+	private final AtomicLongArray slots;
+	private final int mask;
+	
+	// Class constructor for a set that will hold at most maxSize values
+	ConcurrentLongSet(int maxSize) {
+		int capacity = capacity(maxSize);
+		slots = new AtomicLongArray(capacity);
+		mask = capacity - 1;
+	}
+	
+	// Return the bytes taken by the slots of a set holding at most maxSize values
+	static long bytes(int maxSize) {
+		return capacity(maxSize) * 8L;
+	}
+	
+	// The power of two at least twice maxSize, keeping the table at most half full
+	private static int capacity(int maxSize) {
+		if (maxSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Cannot hold " + maxSize + " values, at most " + MAX_SIZE);
+		}
+		return Integer.highestOneBit(Math.max(maxSize, 1) * 2 - 1) << 1;
+	}
+	
+	// Add value, returning true if it was not in the set yet
+	boolean add(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		long stored = value + 1;
+		int slot = hash(value) & mask;
+		for (int probes = 0; probes <= mask; probes++) {
+			long current = slots.get(slot);
+			if (current == stored) {
+				return false;
+			}
+			if (current == 0) {
+				if (slots.compareAndSet(slot, 0, stored)) {
+					return true;
+				}
+				// Another thread claimed the slot; look at it again
+				current = slots.get(slot);
+				if (current == stored) {
+					return false;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		throw new IllegalStateException("Set is full");
+	}
+	
+	// Whether value is in the set
+	boolean contains(long value) {
+		long stored = value + 1;
+		int slot = hash(value) & mask;
+		for (int probes = 0; probes <= mask; probes++) {
+			long current = slots.get(slot);
+			if (current == stored) {
+				return true;
+			}
+			if (current == 0) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+	
+	private static int hash(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -1,27 +1,40 @@
 public class Config {
+	// Bug injection flags are kept per thread so that tests running in parallel
+	// can each configure them without racing. Threads started after a flag is set
+	// inherit the value of the thread that started them.
+	
 	// Whether to intentionally inject bugs into CoffeeMakerQuest.
-	private static boolean buggyCoffeeMakerQuest = false;
+	private static final ThreadLocal<Boolean> buggyCoffeeMakerQuest = newFlag();
 	// Whether to intentionally inject bugs into Player.
-	private static boolean buggyPlayer = false;
+	private static final ThreadLocal<Boolean> buggyPlayer = newFlag();
 	// Whether to intentionally inject bugs into Room.
-	private static boolean buggyRoom = false;
+	private static final ThreadLocal<Boolean> buggyRoom = newFlag();
+	
+	private static ThreadLocal<Boolean> newFlag() {
+		return new InheritableThreadLocal<Boolean>() {
+			@Override
+			protected Boolean initialValue() {
+				return false;
+			}
+		};
+	}
 	
 	public static void setBuggyCoffeeMakerQuest(boolean val) {
-		buggyCoffeeMakerQuest = val;
+		buggyCoffeeMakerQuest.set(val);
 	}
 	public static void setBuggyPlayer(boolean val) {
-		buggyPlayer = val;
+		buggyPlayer.set(val);
 	}
 	public static void setBuggyRoom(boolean val) {
-		buggyRoom = val;
+		buggyRoom.set(val);
 	}
 	public static boolean getBuggyCoffeeMakerQuest() {
-		return buggyCoffeeMakerQuest;
+		return buggyCoffeeMakerQuest.get();
 	}
 	public static boolean getBuggyPlayer() {
-		return buggyPlayer;
+		return buggyPlayer.get();
 	}
 	public static boolean getBuggyRoom() {
-		return buggyRoom;
+		return buggyRoom.get();
 	}
 }
@@ -0,0 +1,499 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Differential fuzzer comparing CoffeeMakerQuestImpl with a reference
+ * implementation from coffeemaker-buggy.jar or coffeemaker.jar. Every worker
+ * plays random command sequences on both implementations in the standard house
+ * and compares the response, the description of the current room and whether
+ * the game is over after every command. The first divergence found is shrunk to
+ * a shortest sequence of commands that still diverges.
+ *
+ * The jars contain their own Room, Player, Item and CoffeeMakerQuest, which
+ * clash with ours, so the reference is loaded by a class loader of its own and
+ * driven through method handles. Closing the fuzzer closes that class loader and
+ * the jars it opened.
+ */
+public class DifferentialFuzzer implements Closeable {
+	// Commands drawn for every step: the valid ones in both cases and some that are not
+	private static final String[] COMMANDS = { "N", "S", "L", "I", "H", "n", "s", "l", "i", "h", "X", "", "NN", " N", "Look" };
+	// Drink commands are drawn with probability 1 / DRINK_ODDS only, since they end the game
+	private static final int DRINK_ODDS = 24;
+	// Sequences played by a worker between two checks of whether to stop
+	private static final int BATCH = 256;
+	
+	public static void main(String[] args) throws Exception {
+		// Usage: DifferentialFuzzer [buggy | solution] [seconds] [seed] [threads]
+		String reference = args.length > 0 ? args[0] : "buggy";
+		long seconds = args.length > 1 ? Long.parseLong(args[1]) : 10;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		
+		Result result;
+		try (DifferentialFuzzer fuzzer = new DifferentialFuzzer(reference, Paths.get("."))) {
+			// Our N command is silent in the northern-most room (see testProcessCommandNInvalid)
+			fuzzer.allowResponse("A door in that direction does not exist.\n", "");
+			result = fuzzer.fuzz(threads, seconds * 1000000000L, Long.MAX_VALUE, seed);
+		}
+		System.out.printf("%s: %d commands in %d sequences in %.2f s (%.0f commands/s, %d threads, seed %d)%n",
+				reference, result.getCommands(), result.getSequences(), result.getSeconds(), result.getCommands() / result.getSeconds(),
+				threads, seed);
+		if (result.getDivergence() == null) {
+			System.out.println("No divergence found");
+		}
+		else {
+			System.out.println(result.getDivergence());
+		}
+	}
+	
+	private final String reference;
+	// Loads the reference from the jars; closed with the fuzzer
+	private final URLClassLoader loader;
+	private final Reference handles;
+	// Frozen standard house shared by every game of ours
+	private final World world;
+	// Response differences that are not reported, as expected + "\0" + actual
+	private final Set<String> allowed;
+	
+	/**
+	 * Create a fuzzer comparing CoffeeMakerQuestImpl with a reference implementation.
+	 *
+	 * @param reference "buggy" for CoffeeMakerQuestBuggy from coffeemaker-buggy.jar, or
+	 *                  "solution" for CoffeeMakerQuestSolution from coffeemaker.jar
+	 * @param jars      directory holding coffeemaker.jar and coffeemaker-buggy.jar
+	 * @throws IllegalArgumentException if reference is not "buggy" or "solution"
+	 * @throws ReflectiveOperationException if the reference cannot be loaded from the jars
+	 */
+	public DifferentialFuzzer(String reference, Path jars) throws ReflectiveOperationException {
+		List<URL> urls = new ArrayList<URL>();
+		String className;
+		if (reference.equals("buggy")) {
+			urls.add(jar(jars, "coffeemaker-buggy.jar"));
+			className = "CoffeeMakerQuestBuggy";
+		}
+		else if (reference.equals("solution")) {
+			className = "CoffeeMakerQuestSolution";
+		}
+		else {
+			throw new IllegalArgumentException("Unknown reference " + reference);
+		}
+		// coffeemaker.jar provides the Room, Player and Item of either reference
+		urls.add(jar(jars, "coffeemaker.jar"));
+		// The parent is the platform loader, so none of our classes are visible to the reference
+		loader = new URLClassLoader(urls.toArray(new URL[urls.size()]), ClassLoader.getPlatformClassLoader());
+		this.reference = reference;
+		allowed = new HashSet<String>();
+		CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+		Game.buildHouse(builder);
+		world = builder.getWorld().freeze();
+		try {
+			handles = new Reference(loader, className);
+			// Fail now rather than in every worker if the reference cannot be driven
+			handles.newGame(world);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			try {
+				loader.close();
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Close the class loader of the reference. The fuzzer cannot be used afterwards.
+	 *
+	 * @throws IOException if a jar cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		loader.close();
+	}
+	
+	private static URL jar(Path directory, String name) throws ReflectiveOperationException {
+		Path path = directory.resolve(name);
+		if (!Files.exists(path)) {
+			throw new ClassNotFoundException(name + " not found in " + directory.toAbsolutePath());
+		}
+		try {
+			return path.toUri().toURL();
+		} catch (java.net.MalformedURLException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+	}
+	
+	/**
+	 * Accept a known difference between the responses of the implementations. The
+	 * current room and whether the game is over are still compared after such a
+	 * response. Must be called before fuzzing.
+	 *
+	 * @param expected the response of the reference
+	 * @param actual   the response of CoffeeMakerQuestImpl
+	 */
+	public void allowResponse(String expected, String actual) {
+		allowed.add(expected + "\0" + actual);
+	}
+	
+	/**
+	 * Play random command sequences on threads workers until the time is up, a
+	 * number of sequences has been played or a divergence is found.
+	 *
+	 * @param threads   the number of workers
+	 * @param nanos     the time to fuzz for
+	 * @param sequences the number of sequences to play at most, counted in batches of 256 per worker
+	 * @param seed      seed of the commands; worker i uses seed + i
+	 * @return the number of commands and sequences played and the shrunk divergence, if any
+	 * @throws Exception if a worker fails
+	 */
+	public Result fuzz(int threads, long nanos, long sequences, long seed) throws Exception {
+		final long start = System.nanoTime();
+		final long perWorker = Math.max(1, sequences / threads);
+		final AtomicReference<List<String>> found = new AtomicReference<List<String>>();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<long[]>> workers = new ArrayList<Future<long[]>>();
+		for (int i = 0; i < threads; i++) {
+			final Random random = new Random(seed + i);
+			workers.add(pool.submit(() -> {
+				// Every worker plays on its own pair of games; only the world is shared
+				Pair pair = new Pair(this);
+				List<String> commands = new ArrayList<String>();
+				long played = 0;
+				long steps = 0;
+				while (found.get() == null && played < perWorker && System.nanoTime() - start < nanos) {
+					for (int j = 0; j < BATCH; j++) {
+						commands.clear();
+						pair.reset();
+						played++;
+						while (!pair.isGameOver()) {
+							String cmd;
+							if (random.nextInt(DRINK_ODDS) == 0) {
+								cmd = random.nextBoolean() ? "D" : "d";
+							}
+							else {
+								cmd = COMMANDS[random.nextInt(COMMANDS.length)];
+							}
+							commands.add(cmd);
+							steps++;
+							if (pair.step(cmd) != null) {
+								found.compareAndSet(null, new ArrayList<String>(commands));
+								return new long[] { played, steps };
+							}
+						}
+					}
+				}
+				return new long[] { played, steps };
+			}));
+		}
+		long played = 0;
+		long steps = 0;
+		try {
+			for (Future<long[]> worker : workers) {
+				long[] counts = worker.get();
+				played += counts[0];
+				steps += counts[1];
+			}
+		} finally {
+			pool.shutdown();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		Divergence divergence = found.get() == null ? null : shrink(found.get());
+		return new Result(played, steps, seconds, divergence);
+	}
+	
+	/**
+	 * Shrink a diverging command sequence by removing chunks of commands, halving
+	 * the chunk size whenever no chunk can be removed, until no single command can
+	 * be removed without the divergence going away.
+	 *
+	 * @param commands a command sequence that diverges
+	 * @return the divergence of the shrunk sequence
+	 * @throws IllegalArgumentException if commands does not diverge
+	 */
+	public Divergence shrink(List<String> commands) throws ReflectiveOperationException {
+		Pair pair = new Pair(this);
+		List<String> current = new ArrayList<String>(commands);
+		if (pair.replay(current) == null) {
+			throw new IllegalArgumentException("Commands do not diverge: " + commands);
+		}
+		int chunk = Math.max(1, current.size() / 2);
+		while (true) {
+			boolean removed = false;
+			for (int from = 0; from < current.size(); ) {
+				List<String> candidate = new ArrayList<String>(current.subList(0, from));
+				candidate.addAll(current.subList(Math.min(from + chunk, current.size()), current.size()));
+				if (!candidate.isEmpty() && pair.replay(candidate) != null) {
+					current = candidate;
+					removed = true;
+				}
+				else {
+					from += chunk;
+				}
+			}
+			if (!removed) {
+				if (chunk == 1) {
+					break;
+				}
+				chunk /= 2;
+			}
+		}
+		// Commands after the first divergence play no part in it
+		String difference = pair.replay(current);
+		return new Divergence(reference, current.subList(0, pair.steps), difference);
+	}
+	
+	// Our game and the reference game, played in lockstep
+	private static class Pair {
+		private final DifferentialFuzzer fuzzer;
+		private final CoffeeMakerQuestImpl ours;
+		private Object theirs;
+		// Commands played since the last reset
+		int steps;
+		
+		Pair(DifferentialFuzzer fuzzer) throws ReflectiveOperationException {
+			this.fuzzer = fuzzer;
+			ours = new CoffeeMakerQuestImpl(fuzzer.world);
+			ours.setPlayer(new Player());
+			reset();
+		}
+		
+		// Start both games again in the first room with an empty inventory
+		void reset() throws ReflectiveOperationException {
+			ours.setState(GameState.pack(0, 0, false));
+			theirs = fuzzer.handles.newGame(fuzzer.world);
+			steps = 0;
+		}
+		
+		boolean isGameOver() {
+			return ours.isGameOver() || fuzzer.handles.isGameOver(theirs);
+		}
+		
+		// Run cmd on both games and return how they differ afterwards, or null if they agree
+		String step(String cmd) {
+			steps++;
+			String expected = fuzzer.handles.processCommand(theirs, cmd);
+			String actual = ours.processCommand(cmd);
+			if (!expected.equals(actual) && !fuzzer.allowed.contains(expected + "\0" + actual)) {
+				return "response \"" + actual + "\", expected \"" + expected + "\"";
+			}
+			expected = fuzzer.handles.getCurrentRoomDescription(theirs);
+			Room room = ours.getCurrentRoom();
+			actual = room == null ? null : room.getDescription();
+			if (expected == null ? actual != null : !expected.equals(actual)) {
+				return "current room \"" + actual + "\", expected \"" + expected + "\"";
+			}
+			boolean over = fuzzer.handles.isGameOver(theirs);
+			if (ours.isGameOver() != over) {
+				return "isGameOver() " + ours.isGameOver() + ", expected " + over;
+			}
+			return null;
+		}
+		
+		// Play commands from the start until the games differ or the game is over and return
+		// the difference, or null if they agree
+		String replay(List<String> commands) throws ReflectiveOperationException {
+			reset();
+			for (String cmd : commands) {
+				if (isGameOver()) {
+					return null;
+				}
+				String difference = step(cmd);
+				if (difference != null) {
+					return difference;
+				}
+			}
+			return null;
+		}
+	}
+	
+	// Constructors and methods of the reference classes, looked up once per fuzzer
+	private static class Reference {
+		private static final MethodType COMMAND = MethodType.methodType(Object.class, Object.class, Object.class);
+		private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+		private final Constructor<?> game;
+		private final Constructor<?> room;
+		private final Constructor<?> player;
+		// Reference Item constants by the ordinal of our Item
+		private final Object[] items;
+		private final Method addFirstRoom;
+		private final Method addRoomAtNorth;
+		private final Method setPlayer;
+		private final Method setCurrentRoom;
+		private final MethodHandle processCommand;
+		private final MethodHandle getCurrentRoom;
+		private final MethodHandle isGameOver;
+		private final MethodHandle getDescription;
+		
+		Reference(ClassLoader loader, String name) throws ReflectiveOperationException {
+			Class<?> gameClass = loader.loadClass(name);
+			Class<?> roomClass = loader.loadClass("Room");
+			Class<?> playerClass = loader.loadClass("Player");
+			Class<?> itemClass = loader.loadClass("Item");
+			// The game and Player constructors are package-private
+			game = gameClass.getDeclaredConstructor();
+			game.setAccessible(true);
+			room = roomClass.getConstructor(String.class, String.class, itemClass);
+			player = playerClass.getDeclaredConstructor();
+			player.setAccessible(true);
+			// Item is package-private in the jar too, so its constants are matched by name
+			items = new Object[Item.values().length];
+			for (Object constant : itemClass.getEnumConstants()) {
+				items[Item.valueOf(((Enum<?>) constant).name()).ordinal()] = constant;
+			}
+			addFirstRoom = gameClass.getMethod("addFirstRoom", roomClass);
+			addRoomAtNorth = gameClass.getMethod("addRoomAtNorth", roomClass, String.class, String.class);
+			setPlayer = gameClass.getMethod("setPlayer", playerClass);
+			setCurrentRoom = gameClass.getMethod("setCurrentRoom", roomClass);
+			// Handles of the methods called for every command, typed so that invokeExact needs no reference class
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			processCommand = lookup.unreflect(gameClass.getMethod("processCommand", String.class)).asType(COMMAND);
+			getCurrentRoom = lookup.unreflect(gameClass.getMethod("getCurrentRoom")).asType(GETTER);
+			isGameOver = lookup.unreflect(gameClass.getMethod("isGameOver")).asType(MethodType.methodType(boolean.class, Object.class));
+			getDescription = lookup.unreflect(roomClass.getMethod("getDescription")).asType(GETTER);
+		}
+		
+		// Create a reference game holding a copy of every room of world, with a new player in the first room
+		Object newGame(World world) throws ReflectiveOperationException {
+			Object instance = game.newInstance();
+			Object first = null;
+			for (int i = 0; i < world.size(); i++) {
+				Room original = world.getRoom(i);
+				Object copy = room.newInstance(original.getFurnishing(), original.getAdjective(), items[original.getItem().ordinal()]);
+				if (i == 0) {
+					first = copy;
+					addFirstRoom.invoke(instance, copy);
+				}
+				else {
+					addRoomAtNorth.invoke(instance, copy, world.getRoom(i - 1).getNorthDoor(), original.getSouthDoor());
+				}
+			}
+			setPlayer.invoke(instance, player.newInstance());
+			setCurrentRoom.invoke(instance, first);
+			return instance;
+		}
+		
+		String processCommand(Object game, String cmd) {
+			try {
+				return (String) (Object) processCommand.invokeExact(game, (Object) cmd);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		
+		// Return the description of the current room of game, or null if it has none
+		String getCurrentRoomDescription(Object game) {
+			try {
+				Object current = (Object) getCurrentRoom.invokeExact(game);
+				return current == null ? null : (String) (Object) getDescription.invokeExact(current);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		
+		boolean isGameOver(Object game) {
+			try {
+				return (boolean) isGameOver.invokeExact(game);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+		
+		// The reference methods throw no checked exceptions, so anything else is unexpected
+		private static RuntimeException rethrow(Throwable e) {
+			if (e instanceof RuntimeException) {
+				return (RuntimeException) e;
+			}
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+			return new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * A shortest known command sequence on which CoffeeMakerQuestImpl and the
+	 * reference differ, and how they differ after its last command.
+	 */
+	public static class Divergence {
+		private final String reference;
+		private final List<String> commands;
+		private final String difference;
+		
+		Divergence(String reference, List<String> commands, String difference) {
+			this.reference = reference;
+			this.commands = new ArrayList<String>(commands);
+			this.difference = difference;
+		}
+		
+		// Return the commands, played from the start of a game in the standard house
+		public List<String> getCommands() {
+			return commands;
+		}
+		
+		// Return how the games differ after the last command
+		public String getDifference() {
+			return difference;
+		}
+		
+		@Override
+		public String toString() {
+			return "Divergence from " + reference + " after " + Arrays.toString(commands.toArray()) + ": " + difference;
+		}
+	}
+	
+	/**
+	 * Outcome of a fuzzing run.
+	 */
+	public static class Result {
+		private final long sequences;
+		private final long commands;
+		private final double seconds;
+		private final Divergence divergence;
+		
+		Result(long sequences, long commands, double seconds, Divergence divergence) {
+			this.sequences = sequences;
+			this.commands = commands;
+			this.seconds = seconds;
+			this.divergence = divergence;
+		}
+		
+		// Return the number of command sequences played
+		public long getSequences() {
+			return sequences;
+		}
+		
+		// Return the number of commands played on each implementation
+		public long getCommands() {
+			return commands;
+		}
+		
+		// Return the time spent fuzzing, not counting shrinking
+		public double getSeconds() {
+			return seconds;
+		}
+		
+		// Return the shrunk divergence found, or null if the implementations agreed throughout
+		public Divergence getDivergence() {
+			return divergence;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class DifferentialFuzzerTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for fuzzing CoffeeMakerQuestImpl against CoffeeMakerQuestSolution from coffeemaker.jar.
+	 * Preconditions: Bug injection is turned off.
+	 *                A DifferentialFuzzer for the solution has been created.
+	 * Execution steps: Fuzz 20000 sequences with seed 1.
+	 *                  Allow the response of N in the northern-most room and fuzz 20000 sequences again.
+	 * Postconditions: The first run finds a divergence, shrunk to the 6 N commands that walk past the Rough room.
+	 *                 The second run finds no divergence.
+	 */
+	@Test
+	public void testDifferentialFuzzer() throws Exception {
+		// Set preconditions
+		java.nio.file.Path jars = java.nio.file.Paths.get(new java.io.File("coffeemaker.jar").exists() ? "." : "..");
+		try (DifferentialFuzzer fuzzer = new DifferentialFuzzer("solution", jars)) {
+			// Execute step 1
+			DifferentialFuzzer.Divergence divergence = fuzzer.fuzz(1, Long.MAX_VALUE, 20000, 1).getDivergence();
+			assertNotNull("No divergence found in the northern-most room", divergence);
+			assertEquals("Divergence was not shrunk", 6, divergence.getCommands().size());
+			for (String cmd : divergence.getCommands()) {
+				assertTrue("Shrunk divergence has a command other than N: " + divergence, cmd.equalsIgnoreCase("N"));
+			}
+			
+			// Execute step 2
+			fuzzer.allowResponse("A door in that direction does not exist.\n", "");
+			DifferentialFuzzer.Result result = fuzzer.fuzz(1, Long.MAX_VALUE, 20000, 1);
+			assertNull("Divergence found: " + result.getDivergence(), result.getDivergence());
+			assertTrue("Fewer sequences were played than asked for", result.getSequences() >= 20000);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+// Player whose every method fails, used when Config.getBuggyPlayer() is set at construction time
+class FaultInjectingPlayer extends Player {
+	
+	private static UnsupportedOperationException injectedBug() {
+		return new UnsupportedOperationException("Injected bug for Player class");
+	}
+	
+	@Override
+	public boolean checkCoffee() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public boolean checkCream() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public boolean checkSugar() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public void addItem(Item item) {
+		throw injectedBug();
+	}
+	
+	@Override
+	public void setInventoryMask(int mask) {
+		throw injectedBug();
+	}
+	
+	@Override
+	public int getInventoryMask() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getInventoryString() {
+		throw injectedBug();
+	}
+}
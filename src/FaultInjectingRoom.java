@@ -0,0 +1,58 @@
+import java.io.IOException;
+
+// Room whose every method fails, used when Config.getBuggyRoom() is set at construction time
+class FaultInjectingRoom extends Room {
+	
+	public FaultInjectingRoom(String furnishing, String adjective, Item item) {
+		super(furnishing, adjective, item);
+	}
+	
+	private static UnsupportedOperationException injectedBug() {
+		return new UnsupportedOperationException("Injected bug for Room class");
+	}
+	
+	@Override
+	public void setNorthDoor(String door) {
+		throw injectedBug();
+	}
+	
+	@Override
+	public void setSouthDoor(String door) {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getFurnishing() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getAdjective() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public Item getItem() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getNorthDoor() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getSouthDoor() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public String getDescription() {
+		throw injectedBug();
+	}
+	
+	@Override
+	public void writeDescription(Appendable out) throws IOException {
+		throw injectedBug();
+	}
+}
@@ -1,16 +1,71 @@
+import java.io.*;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
-public class Game {	
-	public static void main(String[] args) {
-		CoffeeMakerQuest cmq = CoffeeMakerQuest.createInstance();
+public class Game {
+	public static void main(String[] args) throws IOException {
+		// Pass "fast" to use buffered I/O, e.g. when piping a scripted session through stdin.
+		// Pass the path of a world file (see WorldFile) or of a .csv world definition (see WorldLoader)
+		// to play in that house instead of the standard one, or a number of rooms to play in a house of
+		// that size generated as the player walks through it (see GeneratedWorld).
+		boolean fast = false;
+		String worldFile = null;
+		for (String arg : args) {
+			if (arg.equals("fast")) {
+				fast = true;
+			}
+			else {
+				worldFile = arg;
+			}
+		}
+		
+		CoffeeMakerQuest cmq;
+		Room room1;
+		if (worldFile != null) {
+			World world;
+			if (worldFile.matches("\\d+")) {
+				world = new GeneratedWorld(Integer.parseInt(worldFile), 1);
+			}
+			else {
+				world = worldFile.endsWith(".csv") ? WorldLoader.load(Paths.get(worldFile)) : WorldFile.open(Paths.get(worldFile));
+			}
+			cmq = new CoffeeMakerQuestImpl(world);
+			room1 = world.getRoom(0);
+		}
+		else {
+			cmq = CoffeeMakerQuest.createInstance();
+			room1 = buildHouse(cmq);
+		}
 		
-		// Create the rooms with their appropriate items
-		Room room1 = new Room("Quaint sofa", "Small", Item.CREAM);
-		Room room2 = new Room("Sad record player", "Funny", Item.NONE);
-		Room room3 = new Room("Tight pizza", "Refinanced", Item.COFFEE);
-		Room room4 = new Room("Flat energy drink", "Dumb", Item.NONE);
-		Room room5 = new Room("Beautiful bag of money", "Bloodthirsty", Item.NONE);
-		Room room6 = new Room("Perfect air hockey table", "Rough", Item.SUGAR);
+		if (fast) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(System.in), 1 << 16);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), 1 << 16);
+			writer.write("Coffee Maker Quest 1.0\n" + System.lineSeparator());
+			cmq.setPlayer(Player.create());
+			cmq.setCurrentRoom(room1);
+			playFast(cmq, reader, writer);
+			reader.close();
+			writer.close();
+		}
+		else {
+			System.out.println("Coffee Maker Quest 1.0\n");
+			cmq.setPlayer(Player.create());
+			cmq.setCurrentRoom(room1);
+			
+			Scanner scanner = new Scanner(System.in);
+			play(cmq, scanner, System.out);
+			scanner.close();
+		}
+	}
+	
+	// Create the rooms of the house with their appropriate items, add them to cmq and return the first room
+	static Room buildHouse(CoffeeMakerQuest cmq) {
+		Room room1 = Room.create("Quaint sofa", "Small", Item.CREAM);
+		Room room2 = Room.create("Sad record player", "Funny", Item.NONE);
+		Room room3 = Room.create("Tight pizza", "Refinanced", Item.COFFEE);
+		Room room4 = Room.create("Flat energy drink", "Dumb", Item.NONE);
+		Room room5 = Room.create("Beautiful bag of money", "Bloodthirsty", Item.NONE);
+		Room room6 = Room.create("Perfect air hockey table", "Rough", Item.SUGAR);
 		
 		cmq.addFirstRoom(room1);
 		cmq.addRoomAtNorth(room2, "Magenta", "Massive");
@@ -18,22 +73,42 @@ public class Game {
 		cmq.addRoomAtNorth(room4, "Dead", "Slim");
 		cmq.addRoomAtNorth(room5, "Vivacious", "Sandy");
 		cmq.addRoomAtNorth(room6, "Purple", "Minimalist");
-					
-		System.out.println("Coffee Maker Quest 1.0\n");
-		cmq.setPlayer(new Player());
-		cmq.setCurrentRoom(room1);
-		
-		Scanner scanner = new Scanner(System.in);
-		
-		// Main game loop
+		return room1;
+	}
+	
+	// Main game loop
+	static void play(CoffeeMakerQuest cmq, Scanner scanner, PrintStream out) {
 		while(cmq.isGameOver() == false) {
-			System.out.println(cmq.getCurrentRoom().getDescription());
-			System.out.println(cmq.getInstructionsString());
+			out.println(cmq.getCurrentRoom().getDescription());
+			out.println(cmq.getInstructionsString());
 			
 			String cmd = scanner.nextLine();
 			String response = cmq.processCommand(cmd);
-			System.out.println(response);
+			out.println(response);
+		}
+	}
+	
+	// Main game loop writing to a single buffered writer. Output is only flushed when the
+	// next command has not arrived yet, so scripted input is processed without a flush per turn.
+	// Stops when the game is over or the input ends.
+	static void playFast(CoffeeMakerQuest cmq, BufferedReader reader, Writer writer) throws IOException {
+		String newline = System.lineSeparator();
+		while(cmq.isGameOver() == false) {
+			cmq.getCurrentRoom().writeDescription(writer);
+			writer.write(newline);
+			writer.write(cmq.getInstructionsString());
+			writer.write(newline);
+			
+			if (!reader.ready()) {
+				writer.flush();
+			}
+			String cmd = reader.readLine();
+			if (cmd == null) {
+				break;
+			}
+			writer.write(cmq.processCommand(cmd));
+			writer.write(newline);
 		}
-		scanner.close();
+		writer.flush();
 	}
 }
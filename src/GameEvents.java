@@ -0,0 +1,129 @@
+import jdk.jfr.*;
+
+/**
+ * JDK Flight Recorder events emitted by the game, shown under the "Coffee
+ * Maker Quest" category in JDK Mission Control. Each event is created and
+ * begun before the work it covers and only filled in and committed if
+ * shouldCommit() is true. The Command and Render events sit on the per-command
+ * path, so they are created through start(), which checks the shared event
+ * type first and allocates nothing while the event is not being recorded.
+ */
+class GameEvents {
+	private GameEvents() {
+	}
+	
+	// One processCommand call
+	@Name("CoffeeMakerQuest.Command")
+	@Label("Command")
+	@Category("Coffee Maker Quest")
+	@Description("A command processed by CoffeeMakerQuestImpl.processCommand")
+	@StackTrace(false)
+	static class Command extends Event {
+		@Label("Command")
+		String command;
+		
+		@Label("Room Index")
+		@Description("Position of the player's room before the command, 0 being the southern-most room")
+		int roomIndex;
+		
+		@Label("Response Length")
+		int responseLength;
+		
+		private static final EventType TYPE = EventType.getEventType(Command.class);
+		
+		// Create and begin an event if commands are being recorded, otherwise return null
+		static Command start() {
+			if (!TYPE.isEnabled()) {
+				return null;
+			}
+			Command event = new Command();
+			event.begin();
+			return event;
+		}
+		
+		// Fill in and commit the event if it is being recorded
+		void commit(CharSequence cmd, int roomIndex, String response) {
+			if (shouldCommit()) {
+				this.command = cmd.toString();
+				this.roomIndex = roomIndex;
+				this.responseLength = response.length();
+				commit();
+			}
+		}
+		
+		// As commit(CharSequence, int, String) for a single-character command; the command
+		// String is only created if the event is being recorded
+		void commit(char cmd, int roomIndex, String response) {
+			if (shouldCommit()) {
+				this.command = String.valueOf(cmd);
+				this.roomIndex = roomIndex;
+				this.responseLength = response.length();
+				commit();
+			}
+		}
+	}
+	
+	// One call adding rooms to a world
+	@Name("CoffeeMakerQuest.WorldBuild")
+	@Label("World Build")
+	@Category("Coffee Maker Quest")
+	@Description("Rooms added to a world by addFirstRoom, addRoomAtNorth or addRooms")
+	@StackTrace(false)
+	static class WorldBuild extends Event {
+		@Label("Operation")
+		String operation;
+		
+		@Label("Rooms Added")
+		int roomsAdded;
+		
+		@Label("World Size")
+		@Description("Number of rooms in the world afterwards")
+		int worldSize;
+		
+		// Fill in and commit the event if it is being recorded
+		void commit(String operation, int roomsAdded, int worldSize) {
+			if (shouldCommit()) {
+				this.operation = operation;
+				this.roomsAdded = roomsAdded;
+				this.worldSize = worldSize;
+				commit();
+			}
+		}
+	}
+	
+	// Building a string shown to the player
+	@Name("CoffeeMakerQuest.Render")
+	@Label("Render")
+	@Category("Coffee Maker Quest")
+	@Description("A room description or inventory string built for the player")
+	@StackTrace(false)
+	static class Render extends Event {
+		@Label("Span")
+		@Description("The method building the string, getDescription or getInventoryString")
+		String span;
+		
+		@Label("Length")
+		int length;
+		
+		private static final EventType TYPE = EventType.getEventType(Render.class);
+		
+		// Create and begin an event if renders are being recorded, otherwise return null
+		static Render start() {
+			if (!TYPE.isEnabled()) {
+				return null;
+			}
+			Render event = new Render();
+			event.begin();
+			return event;
+		}
+		
+		// Fill in and commit the event if it is being recorded
+		void commit(String span, String text) {
+			if (shouldCommit()) {
+				this.span = span;
+				this.length = text.length();
+				commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,77 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class GameEventsTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for the Flight Recorder events of a recorded session.
+	 * Preconditions: A JFR recording of the Coffee Maker Quest events has been started.
+	 * Execution steps: Build a game of two real rooms with a real player, starting in the first room.
+	 *                  Call getCurrentRoom().getDescription(), processCommand("N"), processCommand("I") and processCommand("What").
+	 *                  Stop the recording and read its events.
+	 * Postconditions: There are 2 WorldBuild events, and Command events for "N" from room 0, "I" and "What".
+	 *                 There are Render events for getDescription and getInventoryString.
+	 */
+	@Test
+	public void testFlightRecorderEvents() throws Exception {
+		// Set preconditions
+		jdk.jfr.Recording recording = new jdk.jfr.Recording();
+		recording.enable("CoffeeMakerQuest.Command");
+		recording.enable("CoffeeMakerQuest.WorldBuild");
+		recording.enable("CoffeeMakerQuest.Render");
+		java.nio.file.Path file = java.nio.file.Files.createTempFile("session", ".jfr");
+		recording.start();
+		
+		// Execute steps
+		// Each test may run on its own thread, so only the events of this thread are counted
+		Thread thread = Thread.currentThread();
+		CoffeeMakerQuestImpl game = new CoffeeMakerQuestImpl();
+		Room first = Room.create("Quaint sofa", "Small", Item.CREAM);
+		game.addFirstRoom(first);
+		game.addRoomAtNorth(Room.create("Sad record player", "Funny", Item.NONE), "Magenta", "Massive");
+		game.setPlayer(Player.create());
+		game.setCurrentRoom(first);
+		game.getCurrentRoom().getDescription();
+		game.processCommand("N");
+		game.processCommand("I");
+		game.processCommand("What");
+		recording.stop();
+		recording.dump(file);
+		recording.close();
+		
+		java.util.List<String> commands = new java.util.ArrayList<String>();
+		java.util.Set<String> spans = new java.util.HashSet<String>();
+		int builds = 0;
+		try {
+			for (jdk.jfr.consumer.RecordedEvent event : jdk.jfr.consumer.RecordingFile.readAllEvents(file)) {
+				if (event.getThread() == null || event.getThread().getJavaThreadId() != thread.getId()) {
+					continue;
+				}
+				String type = event.getEventType().getName();
+				if (type.equals("CoffeeMakerQuest.Command")) {
+					commands.add(event.getString("command") + "@" + event.getInt("roomIndex"));
+				}
+				else if (type.equals("CoffeeMakerQuest.WorldBuild")) {
+					builds++;
+				}
+				else if (type.equals("CoffeeMakerQuest.Render")) {
+					spans.add(event.getString("span"));
+				}
+			}
+		} finally {
+			java.nio.file.Files.delete(file);
+		}
+		assertEquals("WorldBuild events were not recorded", 2, builds);
+		assertEquals("Command events were incorrect", java.util.Arrays.asList("N@0", "I@1", "What@1"), commands);
+		assertTrue("getDescription Render event was not recorded", spans.contains("getDescription"));
+		assertTrue("getInventoryString Render event was not recorded", spans.contains("getInventoryString"));
+	}
+}
@@ -0,0 +1,405 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.*;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class GameServer {
+	public static final int DEFAULT_PORT = 4632;
+	// Longest command line accepted; clients sending longer lines are disconnected
+	static final int MAX_LINE_LENGTH = 1024;
+	// Most output queued for a client that is not reading it; clients exceeding it are disconnected
+	static final int MAX_PENDING_BYTES = 1 << 20;
+	
+	public static void main(String[] args) throws Exception {
+		// Options: a port number, "metrics" to record command metrics and publish them over JMX,
+		// and "journal <file>" to journal every session to file and recover sessions from it
+		int port = DEFAULT_PORT;
+		boolean recordMetrics = false;
+		String journalFile = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("journal") && i + 1 < args.length) {
+				journalFile = args[++i];
+			}
+			else if (arg.equals("metrics")) {
+				recordMetrics = true;
+			}
+			else {
+				port = Integer.parseInt(arg);
+			}
+		}
+		
+		// Build the one session manager the server uses, then attach the options to it
+		final SessionManager sessions;
+		if (journalFile != null) {
+			sessions = new SessionManager(Paths.get(journalFile), SessionManager.DEFAULT_SNAPSHOT_INTERVAL);
+			System.out.println("Recovered sessions: " + sessions.getRecoveredSessions());
+		}
+		else {
+			sessions = new SessionManager();
+		}
+		if (recordMetrics) {
+			final CommandMetrics metrics = new CommandMetrics();
+			System.out.println("Command metrics registered as " + metrics.register("GameServer"));
+			sessions.setMetrics(metrics);
+			// Print the plain-text report when the server is stopped
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					System.out.print(metrics.dump());
+				}
+			});
+		}
+		final GameServer server = new GameServer(sessions, port);
+		// When the server is stopped, stop the event loop first so no command is journaled after
+		// the journal has written its last records to disk
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try {
+					server.close();
+					sessions.close();
+				} catch (IOException e) {
+					System.err.println("Could not close the server: " + e);
+				}
+			}
+		});
+		System.out.println("Coffee Maker Quest server listening on port " + server.getPort());
+		server.run();
+	}
+	
+	private final SessionManager sessions;
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final ByteBuffer readBuffer;
+	// Characters decoded from readBuffer; UTF-8 never decodes to more chars than bytes
+	private final CharBuffer charBuffer;
+	// Connections holding replies until their commands are on disk
+	private final List<SelectionKey> awaitingDurable;
+	// Connections the system queues before the event loop accepts them
+	private static final int ACCEPT_BACKLOG = 1024;
+	// Set by close; the event loop checks it after every select
+	private volatile boolean stopping;
+	private volatile boolean running;
+	private volatile Thread loopThread;
+	// Released once the event loop has returned
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	
+	// Class constructor binding the listening socket; port 0 picks a free port
+	public GameServer(SessionManager sessions, int port) throws IOException {
+		this.sessions = sessions;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		this.serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+		this.serverChannel.configureBlocking(false);
+		this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		this.readBuffer = ByteBuffer.allocateDirect(1 << 16);
+		this.charBuffer = CharBuffer.allocate(1 << 16);
+		this.awaitingDurable = new ArrayList<SelectionKey>();
+		// Wake the event loop to send the replies whose commands have reached the disk
+		sessions.setDurableListener(new Runnable() {
+			public void run() {
+				selector.wakeup();
+			}
+		});
+	}
+	
+	// Return the port the server is listening on
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+	
+	// Stop the event loop, wait until it has finished the command it is running, and close the
+	// listening socket. Once this returns no more commands reach the session manager.
+	public void close() throws IOException {
+		stopping = true;
+		selector.wakeup();
+		if (running && Thread.currentThread() != loopThread) {
+			try {
+				stopped.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		serverChannel.close();
+		selector.close();
+	}
+	
+	// Event loop serving every connection on the calling thread. Each client line is one command;
+	// each reply is the response, the new room description and the instructions prompt, one
+	// line each, as printed by Game. The connection is closed once the game is over.
+	// When sessions are journaled, the greeting names the session id, and a first line of
+	// "resume <id>" continues a session recovered from the journal instead. The reply to a
+	// journaled command is held until the journal has forced the command to disk, so a
+	// command the client saw answered survives a crash.
+	public void run() throws IOException {
+		loopThread = Thread.currentThread();
+		running = true;
+		try {
+			while (!stopping) {
+				selector.select();
+				if (stopping) {
+					break;
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					try {
+						if (key.isAcceptable()) {
+							accept();
+						}
+						else {
+							if (key.isReadable()) {
+								read(key);
+							}
+							if (key.isValid() && key.isWritable()) {
+								flush(key);
+							}
+						}
+					} catch (IOException | UncheckedIOException e) {
+						// Includes a journal that could not be written; only this connection is closed,
+						// and a failed accept leaves the listening socket open
+						if (key.channel() != serverChannel) {
+							disconnect(key);
+						}
+					}
+				}
+				releaseDurable();
+			}
+		} finally {
+			running = false;
+			stopped.countDown();
+		}
+	}
+	
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Connection connection;
+		try {
+			connection = new Connection(sessions.openSession());
+		} catch (UncheckedIOException e) {
+			// The session could not be journaled; turn the client away but keep listening
+			channel.close();
+			return;
+		}
+		SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+		CoffeeMakerQuest cmq = connection.cmq;
+		long id = sessions.getSessionId(cmq);
+		send(key, "Coffee Maker Quest 1.0\n" + (id < 0 ? "" : "Session " + id + "\n") + "\n" + cmq.getCurrentRoom().getDescription() + "\n" + cmq.getInstructionsString() + "\n");
+	}
+	
+	private void read(SelectionKey key) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		// Start with the bytes of a character cut off at the end of the last read
+		readBuffer.clear();
+		connection.undecoded.flip();
+		readBuffer.put(connection.undecoded);
+		connection.undecoded.clear();
+		int n = ((SocketChannel) key.channel()).read(readBuffer);
+		if (n < 0) {
+			disconnect(key);
+			return;
+		}
+		readBuffer.flip();
+		charBuffer.clear();
+		connection.decoder.decode(readBuffer, charBuffer, false);
+		connection.undecoded.put(readBuffer);
+		charBuffer.flip();
+		while (charBuffer.hasRemaining() && !connection.cmq.isGameOver() && !connection.closeWhenFlushed) {
+			char c = charBuffer.get();
+			if (c == '\n') {
+				process(key, connection);
+			}
+			else if (c != '\r') {
+				if (connection.line.length() == MAX_LINE_LENGTH) {
+					// Drop clients that never end their line rather than buffering it without limit
+					connection.closeWhenFlushed = true;
+					reply(key, connection, "Line too long.\n");
+					return;
+				}
+				connection.line.append(c);
+			}
+		}
+	}
+	
+	private void process(SelectionKey key, Connection connection) throws IOException {
+		if (!connection.started && resume(key, connection)) {
+			connection.line.setLength(0);
+			return;
+		}
+		connection.started = true;
+		CoffeeMakerQuest cmq = connection.cmq;
+		String response = cmq.processCommand(connection.line);
+		connection.line.setLength(0);
+		if (cmq.isGameOver()) {
+			connection.closeWhenFlushed = true;
+			reply(key, connection, response + "\n");
+		}
+		else {
+			reply(key, connection, response + "\n" + cmq.getCurrentRoom().getDescription() + "\n" + cmq.getInstructionsString() + "\n");
+		}
+	}
+	
+	// Send text after the replies already held, holding it too until the session's last
+	// journal record is on disk. The connection is not read while replies are held.
+	private void reply(SelectionKey key, Connection connection, String text) throws IOException {
+		if (connection.held.length() == 0) {
+			if (sessions.isDurable(connection.cmq)) {
+				send(key, text);
+				return;
+			}
+			awaitingDurable.add(key);
+		}
+		if (connection.held.length() + text.length() > MAX_PENDING_BYTES) {
+			throw new IOException("Client sends commands faster than the journal writes them");
+		}
+		connection.held.append(text);
+		updateInterest(key, connection);
+	}
+	
+	// Send the held replies of every connection whose commands have all reached the disk
+	private void releaseDurable() {
+		Iterator<SelectionKey> keys = awaitingDurable.iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			Connection connection = (Connection) key.attachment();
+			try {
+				if (!key.isValid()) {
+					keys.remove();
+				}
+				else if (sessions.isDurable(connection.cmq)) {
+					keys.remove();
+					String text = connection.held.toString();
+					connection.held.setLength(0);
+					send(key, text);
+				}
+			} catch (IOException | UncheckedIOException e) {
+				keys.remove();
+				disconnect(key);
+			}
+		}
+	}
+	
+	// Switch the connection to the recovered session named by a "resume <id>" line,
+	// returning false if the line is not such a request
+	private boolean resume(SelectionKey key, Connection connection) throws IOException {
+		String line = connection.line.toString();
+		if (!line.startsWith("resume ")) {
+			return false;
+		}
+		CoffeeMakerQuest resumed;
+		try {
+			resumed = sessions.resumeSession(Long.parseLong(line.substring("resume ".length()).trim()));
+		} catch (NumberFormatException e) {
+			resumed = null;
+		}
+		if (resumed == null) {
+			send(key, "No such session to resume.\n" + connection.cmq.getCurrentRoom().getDescription() + "\n" + connection.cmq.getInstructionsString() + "\n");
+			return true;
+		}
+		sessions.closeSession(connection.cmq);
+		connection.cmq = resumed;
+		connection.started = true;
+		send(key, "Resumed session " + sessions.getSessionId(resumed) + "\n" + resumed.getCurrentRoom().getDescription() + "\n" + resumed.getInstructionsString() + "\n");
+		return true;
+	}
+	
+	// Queue text for the client and write as much of the queue as the socket accepts
+	private void send(SelectionKey key, String text) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		connection.pendingBytes += bytes.length;
+		if (connection.pendingBytes > MAX_PENDING_BYTES) {
+			throw new IOException("Client is not reading its replies");
+		}
+		connection.pending.add(ByteBuffer.wrap(bytes));
+		flush(key);
+	}
+	
+	// Write queued output. While some is left, the connection waits for the socket to become
+	// writable and is not read, so a client that does not read its replies sends no more commands.
+	private void flush(SelectionKey key) throws IOException {
+		Connection connection = (Connection) key.attachment();
+		SocketChannel channel = (SocketChannel) key.channel();
+		while (!connection.pending.isEmpty()) {
+			ByteBuffer buffer = connection.pending.peek();
+			connection.pendingBytes -= channel.write(buffer);
+			if (buffer.hasRemaining()) {
+				updateInterest(key, connection);
+				return;
+			}
+			connection.pending.poll();
+		}
+		updateInterest(key, connection);
+		if (connection.closeWhenFlushed && connection.held.length() == 0) {
+			disconnect(key);
+		}
+	}
+	
+	// Wait to write while output is queued, and read only when no output is queued or held
+	private static void updateInterest(SelectionKey key, Connection connection) {
+		key.interestOps(!connection.pending.isEmpty() ? SelectionKey.OP_WRITE : connection.held.length() > 0 ? 0 : SelectionKey.OP_READ);
+	}
+	
+	private void disconnect(SelectionKey key) {
+		Connection connection = (Connection) key.attachment();
+		key.cancel();
+		try {
+			key.channel().close();
+		} catch (IOException e) {
+			// Nothing left to do for a connection that is already broken
+		}
+		if (connection != null && !connection.closed) {
+			connection.closed = true;
+			try {
+				sessions.closeSession(connection.cmq);
+			} catch (UncheckedIOException e) {
+				// The journal failed; recovery will see the session as still open
+			}
+		}
+	}
+	
+	// Per-connection state: the game session, the partial command line and unsent output
+	private static class Connection {
+		CoffeeMakerQuest cmq;
+		final StringBuilder line;
+		final ArrayDeque<ByteBuffer> pending;
+		// Bytes in pending not written yet
+		int pendingBytes;
+		// Replies waiting for the session's journal records to reach the disk
+		final StringBuilder held;
+		// Decodes the client's UTF-8 input, replacing malformed bytes
+		final CharsetDecoder decoder;
+		// Start of a multi-byte character whose remaining bytes have not arrived yet
+		final ByteBuffer undecoded;
+		boolean closeWhenFlushed;
+		boolean closed;
+		// Whether a command has been processed, after which sessions can no longer be resumed
+		boolean started;
+		
+		Connection(CoffeeMakerQuest cmq) {
+			this.cmq = cmq;
+			this.line = new StringBuilder();
+			this.pending = new ArrayDeque<ByteBuffer>();
+			this.held = new StringBuilder();
+			this.decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.undecoded = ByteBuffer.allocate(8);
+		}
+	}
+}
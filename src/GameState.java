@@ -0,0 +1,41 @@
+/**
+ * The whole dynamic state of a game packed into one long: the index of the
+ * player's room in the low 32 bits, the inventory mask (laid out as
+ * Player.getInventoryMask()) in bits 32 to 34 and whether the game is over in
+ * bit 35. States are values: two games on the same world are in the same state
+ * exactly when their states are ==, and Long.hashCode of a state is a hash of
+ * the game.
+ */
+final class GameState {
+	private static final int INVENTORY_SHIFT = 32;
+	private static final int INVENTORY_BITS = 0x7;
+	private static final long DRANK_BIT = 1L << 35;
+	
+	private GameState() {
+	}
+	
+	// Pack a state; roomIndex is -1 if the player has not been placed in a room
+	static long pack(int roomIndex, int inventoryMask, boolean drank) {
+		return (roomIndex & 0xFFFFFFFFL) | ((long) (inventoryMask & INVENTORY_BITS) << INVENTORY_SHIFT) | (drank ? DRANK_BIT : 0);
+	}
+	
+	// Return the room index of state, -1 if the player has not been placed in a room
+	static int roomIndex(long state) {
+		return (int) state;
+	}
+	
+	// Return the inventory mask of state
+	static int inventoryMask(long state) {
+		return (int) (state >>> INVENTORY_SHIFT) & INVENTORY_BITS;
+	}
+	
+	// Return whether the game is over in state
+	static boolean drank(long state) {
+		return (state & DRANK_BIT) != 0;
+	}
+	
+	// Return a readable form of state, for debugging
+	static String toString(long state) {
+		return "room " + roomIndex(state) + ", inventory " + inventoryMask(state) + (drank(state) ? ", over" : "");
+	}
+}
@@ -0,0 +1,230 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * World whose rooms are generated from a seed and their position instead of
+ * being stored, so a house of any int size takes the same small heap. A Room is
+ * only created when a game asks for one with getRoom, and the most recently used
+ * rooms are kept in a bounded LRU cache. The world is always frozen, so no rooms
+ * can be added.
+ *
+ * Every adjective and furnishing ends with the position of its room, which
+ * makes them unique without remembering the ones handed out, and lets indexOf
+ * and usesAdjective/usesFurnishing work without looking at any other room. The
+ * same seed and size always generate the same house.
+ */
+public class GeneratedWorld extends World {
+	// Rooms kept in the cache unless a size is given
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+	private static final Item[] ITEMS = Item.values();
+	private static final String[] ADJECTIVES = { "Small", "Funny", "Refinanced", "Dumb", "Bloodthirsty", "Rough", "Dusty",
+			"Quiet", "Gloomy", "Sunny", "Narrow", "Grand", "Drafty", "Cozy", "Haunted", "Tidy" };
+	private static final String[] FURNISHINGS = { "Quaint sofa", "Sad record player", "Tight pizza", "Flat energy drink",
+			"Beautiful bag of money", "Perfect air hockey table", "Wobbly desk", "Broken lamp", "Stack of textbooks",
+			"Dead houseplant", "Squeaky chair", "Old television", "Pile of laundry", "Lava lamp", "Bean bag", "Whiteboard" };
+	private static final String[] DOORS = { "Magenta", "Massive", "Beige", "Smart", "Dead", "Slim", "Vivacious", "Sandy",
+			"Purple", "Minimalist", "Oaken", "Creaky" };
+	
+	private final int size;
+	private final long seed;
+	// Rooms holding the coffee, cream and sugar, in the order of the Item constants after NONE
+	private final int[] itemRooms;
+	// Guarded by itself; iterates from least to most recently used
+	private final LinkedHashMap<Integer, Room> cache;
+	
+	/**
+	 * Create a house of size rooms generated from seed, caching up to
+	 * DEFAULT_CACHE_SIZE rooms.
+	 *
+	 * @param size the number of rooms
+	 * @param seed chooses the names, doors and the rooms holding the items
+	 */
+	public GeneratedWorld(int size, long seed) {
+		this(size, seed, DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * Create a house of size rooms generated from seed.
+	 *
+	 * @param size      the number of rooms
+	 * @param seed      chooses the names, doors and the rooms holding the items
+	 * @param cacheSize the number of rooms kept once created
+	 * @throws IllegalArgumentException if size is not positive or cacheSize is negative
+	 */
+	public GeneratedWorld(int size, long seed, final int cacheSize) {
+		if(size <= 0 || cacheSize < 0)
+		{
+			throw new IllegalArgumentException("Cannot generate " + size + " rooms with a cache of " + cacheSize);
+		}
+		this.size = size;
+		this.seed = seed;
+		// The coffee, cream and sugar are in different rooms whenever there are enough rooms
+		itemRooms = new int[3];
+		for(int i = 0; i < itemRooms.length; i++)
+		{
+			int room = (int) Math.floorMod(mix(-1 - i), (long) size);
+			while(i < size && contains(itemRooms, i, room))
+			{
+				room = (room + 1) % size;
+			}
+			itemRooms[i] = room;
+		}
+		cache = new LinkedHashMap<Integer, Room>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Room> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		freeze();
+	}
+	
+	// Whether one of the first length values is value
+	private static boolean contains(int[] values, int length, int value) {
+		for(int i = 0; i < length; i++)
+		{
+			if(values[i] == value)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean addFirstRoom(Room room) {
+		return false;
+	}
+	
+	@Override
+	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
+		return false;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Room getRoom(int index) {
+		checkIndex(index);
+		synchronized(cache)
+		{
+			Room room = cache.get(index);
+			if(room != null)
+			{
+				return room;
+			}
+		}
+		// Generate the room outside the lock; if another thread got there first, use its room
+		Room room = new Room(furnishing(index), adjective(index), getItem(index));
+		if(index < size - 1)
+		{
+			room.setNorthDoor(DOORS[pick(index, 2, DOORS.length)]);
+		}
+		if(index > 0)
+		{
+			room.setSouthDoor(DOORS[pick(index - 1, 3, DOORS.length)]);
+		}
+		synchronized(cache)
+		{
+			Room raced = cache.putIfAbsent(index, room);
+			return raced != null ? raced : room;
+		}
+	}
+	
+	@Override
+	public Item getItem(int index) {
+		checkIndex(index);
+		for(int i = 0; i < itemRooms.length; i++)
+		{
+			if(itemRooms[i] == index)
+			{
+				return ITEMS[i + 1];
+			}
+		}
+		return Item.NONE;
+	}
+	
+	@Override
+	public int indexOf(Room room) {
+		if(room == null || room.getAdjective() == null)
+		{
+			return -1;
+		}
+		int index = position(room.getAdjective());
+		return index >= 0 && adjective(index).equals(room.getAdjective()) && furnishing(index).equals(room.getFurnishing()) ? index : -1;
+	}
+	
+	@Override
+	public boolean usesAdjective(String adjective) {
+		int index = adjective == null ? -1 : position(adjective);
+		return index >= 0 && adjective(index).equals(adjective);
+	}
+	
+	@Override
+	public boolean usesFurnishing(String furnishing) {
+		int index = furnishing == null ? -1 : position(furnishing);
+		return index >= 0 && furnishing(index).equals(furnishing);
+	}
+	
+	// Return the number of rooms currently cached
+	int cachedRooms() {
+		synchronized(cache)
+		{
+			return cache.size();
+		}
+	}
+	
+	private void checkIndex(int index) {
+		if(index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Room " + index + " of " + size);
+		}
+	}
+	
+	// The adjective of the room at index, e.g. "Dusty 42"
+	private String adjective(int index) {
+		return ADJECTIVES[pick(index, 0, ADJECTIVES.length)] + " " + index;
+	}
+	
+	// The furnishing of the room at index, e.g. "Lava lamp no. 42"
+	private String furnishing(int index) {
+		return FURNISHINGS[pick(index, 1, FURNISHINGS.length)] + " no. " + index;
+	}
+	
+	// The position a generated name ends with, or -1 if it does not end with one in this world
+	private int position(String name) {
+		int start = name.lastIndexOf(' ') + 1;
+		if(start == 0 || start == name.length() || name.length() - start > 10)
+		{
+			return -1;
+		}
+		long index = 0;
+		for(int i = start; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if(c < '0' || c > '9')
+			{
+				return -1;
+			}
+			index = index * 10 + (c - '0');
+		}
+		return index < size ? (int) index : -1;
+	}
+	
+	// Choose one of choices for a property of the room at index
+	private int pick(int index, int property, int choices) {
+		return (int) Math.floorMod(mix(((long) index << 2) | property), (long) choices);
+	}
+	
+	// SplitMix64 finaliser of value combined with the seed
+	private long mix(long value) {
+		long z = seed + value * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Game session that appends every command it accepts to a CommandJournal
+ * before running it, and a snapshot of its state every snapshotInterval
+ * commands, so that SessionManager can rebuild it after a restart by replaying
+ * at most snapshotInterval commands. Appending does not wait for the disk; the
+ * journal forces records in batches in the background, and callers that must
+ * not acknowledge a command before it is on disk check
+ * SessionManager.isDurable.
+ */
+public class JournaledSession implements CoffeeMakerQuest {
+	private final long id;
+	private final CoffeeMakerQuestImpl game;
+	private final CommandJournal journal;
+	private final int snapshotInterval;
+	private int commandsSinceSnapshot;
+	// Sequence number of the last record this session appended to the journal
+	private long lastSequence;
+	
+	JournaledSession(long id, CoffeeMakerQuestImpl game, CommandJournal journal, int snapshotInterval) {
+		this.id = id;
+		this.game = game;
+		this.journal = journal;
+		this.snapshotInterval = snapshotInterval;
+		this.commandsSinceSnapshot = 0;
+	}
+	
+	// Return the id of the session in the journal
+	public long getId() {
+		return id;
+	}
+	
+	// Return the sequence number of the last record appended for this session, 0 if none
+	long getLastSequence() {
+		return lastSequence;
+	}
+	
+	// Return the game this session journals
+	CoffeeMakerQuestImpl getGame() {
+		return game;
+	}
+	
+	public boolean isGameOver() {
+		return game.isGameOver();
+	}
+	
+	// Replace the player and journal a snapshot, since the change is not a command replay could repeat
+	public void setPlayer(Player player) {
+		game.setPlayer(player);
+		snapshotUnchecked();
+	}
+	
+	public boolean addFirstRoom(Room room) {
+		return game.addFirstRoom(room);
+	}
+	
+	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
+		return game.addRoomAtNorth(room, northDoor, southDoor);
+	}
+	
+	public Room getCurrentRoom() {
+		return game.getCurrentRoom();
+	}
+	
+	// Move to room and journal a snapshot if it is in the house, as for setPlayer
+	public boolean setCurrentRoom(Room room) {
+		if (!game.setCurrentRoom(room)) {
+			return false;
+		}
+		snapshotUnchecked();
+		return true;
+	}
+	
+	public String getInstructionsString() {
+		return game.getInstructionsString();
+	}
+	
+	public String processCommand(String cmd) {
+		return processCommand((CharSequence) cmd);
+	}
+	
+	// Journal cmd, run it and take a snapshot if one is due. Commands are journaled
+	// before they run, so the journal always holds them in the order they ran.
+	public String processCommand(CharSequence cmd) {
+		try {
+			lastSequence = journal.appendCommand(id, cmd);
+			String response = game.processCommand(cmd);
+			if (++commandsSinceSnapshot >= snapshotInterval) {
+				snapshot();
+			}
+			return response;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	public String processCommand(char cmd) {
+		return processCommand(String.valueOf(cmd));
+	}
+	
+	// Append a snapshot of the current state of the game
+	void snapshot() throws IOException {
+		lastSequence = journal.appendSnapshot(id, game.getState());
+		commandsSinceSnapshot = 0;
+	}
+	
+	private void snapshotUnchecked() {
+		try {
+			snapshot();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in nanoseconds with fixed log-linear buckets, in the
+ * style of HdrHistogram: every power of two is split into SUB_BUCKETS equal
+ * buckets, so a recorded value is known to within 1/SUB_BUCKETS of itself.
+ * Recording is a single atomic increment and never allocates.
+ */
+class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Durations from 2^MAX_EXPONENT ns (about 18 minutes) up all land in the last bucket
+	private static final int MAX_EXPONENT = 40;
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts;
+	
+	LatencyHistogram() {
+		counts = new AtomicLongArray(BUCKETS);
+	}
+	
+	// Count one duration
+	void record(long nanos) {
+		counts.incrementAndGet(bucket(nanos));
+	}
+	
+	// Return the number of recorded durations
+	long count() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+	
+	// Return the upper bound of the bucket holding the given fraction of recorded durations, 0 if none were recorded
+	long percentile(double fraction) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(BUCKETS - 1);
+	}
+	
+	// Return the upper bound of the highest non-empty bucket, 0 if none were recorded
+	long max() {
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) != 0) {
+				return upperBound(i);
+			}
+		}
+		return 0;
+	}
+	
+	// Add the counts of every given histogram to this one
+	void add(LatencyHistogram[] histograms) {
+		for (LatencyHistogram histogram : histograms) {
+			for (int i = 0; i < BUCKETS; i++) {
+				counts.addAndGet(i, histogram.counts.get(i));
+			}
+		}
+	}
+	
+	// Forget every recorded duration
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+	
+	// Values below SUB_BUCKETS get a bucket each; larger values are bucketed by their
+	// highest bit and the SUB_BUCKET_BITS bits below it
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(nanos, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	// Largest value counted in the given bucket
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
@@ -0,0 +1,138 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+public class LoadGenerator {
+	// Commands sent by every client, in order; the game is never finished so sessions stay open
+	private static final String[] COMMANDS = { "n", "l", "i", "s", "h" };
+	
+	public static void main(String[] args) throws Exception {
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+		int clients = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int commands = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+		
+		long start = System.nanoTime();
+		LatencyHistogram latencies = run(host, port, clients, commands);
+		long elapsed = System.nanoTime() - start;
+		
+		System.out.printf("%d clients x %d commands in %.2f ms (%.0f commands/s)%n", clients, commands,
+				elapsed / 1e6, latencies.count() / (elapsed / 1e9));
+		System.out.printf("p50: %.1f us%n", latencies.percentile(0.50) / 1e3);
+		System.out.printf("p99: %.1f us%n", latencies.percentile(0.99) / 1e3);
+		System.out.printf("max: %.1f us%n", latencies.max() / 1e3);
+	}
+	
+	// Connect the given number of clients concurrently, have each send commands commands, and
+	// return the round-trip latency of every command. Every client is a non-blocking channel
+	// served by one selector on the calling thread, so the number of clients is only limited
+	// by the sockets the system allows, not by threads.
+	static LatencyHistogram run(String host, int port, int clients, int commands) throws IOException {
+		LatencyHistogram latencies = new LatencyHistogram();
+		byte[] prompt = new CoffeeMakerQuestImpl().getInstructionsString().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer readBuffer = ByteBuffer.allocateDirect(1 << 16);
+		InetSocketAddress address = new InetSocketAddress(host, port);
+		Selector selector = Selector.open();
+		int running = clients;
+		try {
+			for (int c = 0; c < clients; c++) {
+				SocketChannel channel = SocketChannel.open();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				// A connection to the local host may be established at once, without an OP_CONNECT event
+				boolean connected = channel.connect(address);
+				channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, new Client(prompt));
+			}
+			while (running > 0) {
+				selector.select();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Client client = (Client) key.attachment();
+					SocketChannel channel = (SocketChannel) key.channel();
+					if (key.isConnectable()) {
+						channel.finishConnect();
+						key.interestOps(SelectionKey.OP_READ);
+					}
+					else if (key.isWritable()) {
+						send(key, client);
+					}
+					else if (key.isReadable()) {
+						readBuffer.clear();
+						if (channel.read(readBuffer) < 0) {
+							throw new EOFException("Server closed the connection");
+						}
+						readBuffer.flip();
+						while (readBuffer.hasRemaining()) {
+							if (!client.reply(readBuffer.get())) {
+								continue;
+							}
+							// The greeting ends with the first prompt; every later one ends a reply
+							if (client.sent > 0) {
+								latencies.record(System.nanoTime() - client.start);
+							}
+							if (client.sent == commands) {
+								channel.close();
+								running--;
+								break;
+							}
+							client.output = ByteBuffer.wrap((COMMANDS[client.sent % COMMANDS.length] + "\n").getBytes(StandardCharsets.UTF_8));
+							client.sent++;
+							client.start = System.nanoTime();
+							send(key, client);
+						}
+					}
+				}
+			}
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				key.channel().close();
+			}
+			selector.close();
+		}
+		return latencies;
+	}
+	
+	// Write as much of the client's command as the socket accepts, waiting for the rest
+	private static void send(SelectionKey key, Client client) throws IOException {
+		((SocketChannel) key.channel()).write(client.output);
+		key.interestOps(client.output.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+	}
+	
+	// Per-client state: the command being sent and progress through the reply
+	private static class Client {
+		private final byte[] prompt;
+		ByteBuffer output;
+		int sent;
+		long start;
+		// Bytes of the current line matching the prompt so far, or -1 once it cannot be the prompt
+		private int matched;
+		
+		Client(byte[] prompt) {
+			this.prompt = prompt;
+		}
+		
+		// Consume one byte of the server's output, returning true if it ends the instructions
+		// prompt line that ends every reply
+		boolean reply(byte b) {
+			if (b == '\n') {
+				boolean end = matched == prompt.length;
+				matched = 0;
+				return end;
+			}
+			if (matched >= 0 && matched < prompt.length && prompt[matched] == b) {
+				matched++;
+			}
+			else {
+				matched = -1;
+			}
+			return false;
+		}
+	}
+}
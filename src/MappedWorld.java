@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * World reading its rooms from a memory-mapped world file, see WorldFile for the
+ * format. Nothing is parsed when the world is created; a Room is only created
+ * when a game asks for one with getRoom, and the most recently requested room is
+ * cached. The world is always frozen, so no rooms can be added.
+ *
+ * Rooms are looked up by value in indexOf, usesAdjective and usesFurnishing
+ * through the adjective and furnishing indexes stored in the file, since rooms
+ * returned by getRoom are views rather than stored objects.
+ */
+public class MappedWorld extends World {
+	private static final Item[] ITEMS = Item.values();
+	
+	// Only read with absolute gets, so the buffer can be shared between threads
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int offsetsStart;
+	private final int bytesStart;
+	private final int roomsStart;
+	private final int adjectiveIndexStart;
+	private final int furnishingIndexStart;
+	private final int indexMask;
+	// Most recently materialised room
+	private volatile RoomView lastView;
+	
+	// Class constructor checking the header of a mapped world file
+	MappedWorld(ByteBuffer buffer, String name) throws IOException {
+		WorldFile.checkHeader(buffer, name);
+		this.buffer = buffer;
+		size = buffer.getInt(8);
+		int strings = buffer.getInt(12);
+		int stringBytes = buffer.getInt(16);
+		offsetsStart = WorldFile.HEADER_SIZE;
+		bytesStart = offsetsStart + (strings + 1) * 4;
+		roomsStart = bytesStart + stringBytes;
+		adjectiveIndexStart = roomsStart + size * WorldFile.RECORD_SIZE;
+		furnishingIndexStart = adjectiveIndexStart + buffer.getInt(20) * 4;
+		indexMask = buffer.getInt(20) - 1;
+		freeze();
+	}
+	
+	@Override
+	public boolean addFirstRoom(Room room) {
+		return false;
+	}
+	
+	@Override
+	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
+		return false;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public Room getRoom(int index) {
+		if(index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Room " + index + " of " + size);
+		}
+		RoomView view = lastView;
+		if(view != null && view.index == index)
+		{
+			return view.room;
+		}
+		int record = roomsStart + index * WorldFile.RECORD_SIZE;
+		Room room = new Room(string(buffer.getInt(record + 4)), string(buffer.getInt(record)), ITEMS[buffer.get(record + 8)]);
+		int northDoor = buffer.getInt(record + 9);
+		int southDoor = buffer.getInt(record + 13);
+		if(northDoor != WorldFile.NO_DOOR)
+		{
+			room.setNorthDoor(string(northDoor));
+		}
+		if(southDoor != WorldFile.NO_DOOR)
+		{
+			room.setSouthDoor(string(southDoor));
+		}
+		lastView = new RoomView(index, room);
+		return room;
+	}
+	
+	@Override
+	public Item getItem(int index) {
+		if(index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Room " + index + " of " + size);
+		}
+		return ITEMS[buffer.get(roomsStart + index * WorldFile.RECORD_SIZE + 8)];
+	}
+	
+	@Override
+	public int indexOf(Room room) {
+		if(room == null || room.getAdjective() == null)
+		{
+			return -1;
+		}
+		RoomView view = lastView;
+		if(view != null && view.room == room)
+		{
+			return view.index;
+		}
+		int index = find(adjectiveIndexStart, 0, room.getAdjective());
+		if(index < 0)
+		{
+			return -1;
+		}
+		return string(buffer.getInt(roomsStart + index * WorldFile.RECORD_SIZE + 4)).equals(room.getFurnishing()) ? index : -1;
+	}
+	
+	@Override
+	public boolean usesAdjective(String adjective) {
+		return adjective != null && find(adjectiveIndexStart, 0, adjective) >= 0;
+	}
+	
+	@Override
+	public boolean usesFurnishing(String furnishing) {
+		return furnishing != null && find(furnishingIndexStart, 4, furnishing) >= 0;
+	}
+	
+	// Look up the room whose string at the given offset of its record is value,
+	// through the index starting at indexStart, returning its position or -1
+	private int find(int indexStart, int field, String value) {
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		int slot = StringTable.hash(encoded, 0, encoded.length) & indexMask;
+		int entry;
+		while((entry = buffer.getInt(indexStart + slot * 4)) != 0)
+		{
+			int index = entry - 1;
+			if(stringEquals(buffer.getInt(roomsStart + index * WorldFile.RECORD_SIZE + field), encoded))
+			{
+				return index;
+			}
+			slot = (slot + 1) & indexMask;
+		}
+		return -1;
+	}
+	
+	// Decode the string with the given id
+	private String string(int id) {
+		int start = buffer.getInt(offsetsStart + id * 4);
+		byte[] encoded = new byte[buffer.getInt(offsetsStart + id * 4 + 4) - start];
+		for(int i = 0; i < encoded.length; i++)
+		{
+			encoded[i] = buffer.get(bytesStart + start + i);
+		}
+		return new String(encoded, StandardCharsets.UTF_8);
+	}
+	
+	// Whether the string with the given id has exactly the given bytes
+	private boolean stringEquals(int id, byte[] encoded) {
+		int start = buffer.getInt(offsetsStart + id * 4);
+		if(buffer.getInt(offsetsStart + id * 4 + 4) - start != encoded.length)
+		{
+			return false;
+		}
+		for(int i = 0; i < encoded.length; i++)
+		{
+			if(buffer.get(bytesStart + start + i) != encoded[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
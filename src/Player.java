@@ -1,73 +1,84 @@
 class Player {
-	private boolean hasCoffee;
-	private boolean hasCream;
-	private boolean hasSugar;
+	// Inventory string for every combination of coffee, cream and sugar, indexed by inventory mask
+	private static final String[] INVENTORY_STRINGS = new String[8];
+	static {
+		for (int mask = 0; mask < INVENTORY_STRINGS.length; mask++) {
+			INVENTORY_STRINGS[mask] = describeInventory(mask).intern();
+		}
+	}
+	
+	// Bitmask of the items in the inventory, one bit per item as given by itemBit
+	private int inventory;
 	
 	public Player() {
-		hasCoffee = false;
-		hasCream = false;
-		hasSugar = false;
+		inventory = 0;
 	}
 	
-	public boolean checkCoffee() {
+	// Create a player, injecting bugs into it if Config.getBuggyPlayer() is set
+	public static Player create() {
 		if (Config.getBuggyPlayer()) {
-			throw new UnsupportedOperationException("Injected bug for Player class");
+			return new FaultInjectingPlayer();
 		}
-		return hasCoffee;
+		return new Player();
+	}
+	
+	// Return the inventory mask bit for item (bit ordinal - 1), or 0 for Item.NONE
+	static int itemBit(Item item) {
+		return item == Item.NONE ? 0 : 1 << (item.ordinal() - 1);
+	}
+	
+	public boolean checkCoffee() {
+		return (inventory & itemBit(Item.COFFEE)) != 0;
 	}
 	
 	public boolean checkCream() {
-		if (Config.getBuggyPlayer()) {
-			throw new UnsupportedOperationException("Injected bug for Player class");
-		}
-		return hasCream;
+		return (inventory & itemBit(Item.CREAM)) != 0;
 	}
 	
 	public boolean checkSugar() {
-		if (Config.getBuggyPlayer()) {
-			throw new UnsupportedOperationException("Injected bug for Player class");
-		}
-		return hasSugar;
+		return (inventory & itemBit(Item.SUGAR)) != 0;
 	}
 	
 	public void addItem(Item item) {
-		if (Config.getBuggyPlayer()) {
-			throw new UnsupportedOperationException("Injected bug for Player class");
-		}
-		switch(item) {
-		case COFFEE:
-			hasCoffee = true;
-			break;
-		case CREAM:
-			hasCream = true;
-			break;
-		case SUGAR:
-			hasSugar = true;
-			break;
-		case NONE:
-			break;
-		}
+		inventory |= itemBit(item);
+	}
+	
+	// Replace the inventory with the items in mask, laid out as getInventoryMask
+	public void setInventoryMask(int mask) {
+		inventory = mask & (INVENTORY_STRINGS.length - 1);
+	}
+	
+	// Return the bitmask of the items in the inventory
+	public int getInventoryMask() {
+		return inventory;
 	}
 	
 	// Return the string describing all the items in the inventory
 	public String getInventoryString() {
-		if (Config.getBuggyPlayer()) {
-			throw new UnsupportedOperationException("Injected bug for Player class");
+		GameEvents.Render event = GameEvents.Render.start();
+		String inventoryString = INVENTORY_STRINGS[inventory & (INVENTORY_STRINGS.length - 1)];
+		if(event != null) {
+			event.commit("getInventoryString", inventoryString);
 		}
+		return inventoryString;
+	}
+	
+	// Return the string describing an inventory holding the items in mask
+	static String describeInventory(int mask) {
 		String str = "";
-		if(hasCoffee) {
+		if((mask & itemBit(Item.COFFEE)) != 0) {
 			str += "You have a cup of delicious coffee.\n";
 		}
 		else {
 			str += "YOU HAVE NO COFFEE!\n";
 		}
-		if(hasCream) {
+		if((mask & itemBit(Item.CREAM)) != 0) {
 			str += "You have some fresh cream.\n";
 		}
 		else {
 			str += "YOU HAVE NO CREAM!\n";
 		}
-		if(hasSugar) {
+		if((mask & itemBit(Item.SUGAR)) != 0) {
 			str += "You have some tasty sugar.\n";
 		}
 		else {
@@ -0,0 +1,70 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+public class ReplayRunner {
+	// FNV-1a 64-bit parameters used for the transcript hash
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: java ReplayRunner <command file>");
+			return;
+		}
+		
+		CoffeeMakerQuest cmq = CoffeeMakerQuest.createInstance();
+		cmq.setCurrentRoom(Game.buildHouse(cmq));
+		cmq.setPlayer(Player.create());
+		
+		long start = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8), 1 << 16);
+		ReplayRunner runner = new ReplayRunner(cmq);
+		runner.replay(reader);
+		reader.close();
+		long elapsed = System.nanoTime() - start;
+		
+		System.out.printf("Transcript hash: %016x%n", runner.getHash());
+		System.out.printf("Commands: %d in %.2f ms (%.1f ns/command)%n", runner.getCommands(), elapsed / 1e6,
+				runner.getCommands() == 0 ? 0.0 : (double) elapsed / runner.getCommands());
+	}
+	
+	private final CoffeeMakerQuest cmq;
+	private long hash;
+	private long commands;
+	
+	public ReplayRunner(CoffeeMakerQuest cmq) {
+		this.cmq = cmq;
+		this.hash = FNV_OFFSET;
+		this.commands = 0;
+	}
+	
+	// Run every command read from reader through cmq until the input ends or the game is over.
+	// The transcript (room description followed by the response, per command) is folded into
+	// the hash as it is produced, so nothing but the current line is held in memory.
+	public void replay(BufferedReader reader) throws IOException {
+		String cmd;
+		while (!cmq.isGameOver() && (cmd = reader.readLine()) != null) {
+			update(cmq.getCurrentRoom().getDescription());
+			update(cmq.processCommand(cmd));
+			commands++;
+		}
+	}
+	
+	// Return the hash of the transcript replayed so far
+	public long getHash() {
+		return hash;
+	}
+	
+	// Return the number of commands replayed so far
+	public long getCommands() {
+		return commands;
+	}
+	
+	private void update(String text) {
+		long h = hash;
+		for (int i = 0; i < text.length(); i++) {
+			h = (h ^ text.charAt(i)) * FNV_PRIME;
+		}
+		hash = h;
+	}
+}
@@ -1,9 +1,13 @@
+import java.io.IOException;
+
 public class Room {
 	private String furnishing;
 	private String adjective;
 	private Item item;
 	private String northDoor;
 	private String southDoor;
+	// Rendered description, or null if a door changed since it was last rendered
+	private String description;
 	
 	// Class constructor to populate the class variables
 	public Room(String furnishing, String adjective, Item item) {
@@ -14,49 +18,55 @@ public class Room {
 		this.southDoor = null;
 	}
 	
-	public void setNorthDoor(String door) {
+	// Create a room, injecting bugs into it if Config.getBuggyRoom() is set
+	public static Room create(String furnishing, String adjective, Item item) {
 		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
+			return new FaultInjectingRoom(furnishing, adjective, item);
 		}
+		return new Room(furnishing, adjective, item);
+	}
+	
+	public void setNorthDoor(String door) {
 		northDoor = door;
+		description = null;
 	}
 	
 	public void setSouthDoor(String door) {
-		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
-		}
 		southDoor = door;
+		description = null;
 	}
 	
 	// Return the furnishing in the room
 	public String getFurnishing() {
-		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
-		}
 		return furnishing;
 	}
 
 	// Return the adjective of the room
 	public String getAdjective() {
-		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
-		}
 		return adjective;
 	}
 
 	// Return the item in the room
 	public Item getItem() {
-		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
-		}
 		return item;
 	}
 	
+	// Return the label of the north door, or null if there is no north door
+	public String getNorthDoor() {
+		return northDoor;
+	}
+	
+	// Return the label of the south door, or null if there is no south door
+	public String getSouthDoor() {
+		return southDoor;
+	}
+	
 	// Print the description for the current room (includes adjective, furnishing, and door description)
 	public String getDescription() {
-		if (Config.getBuggyRoom()) {
-			throw new UnsupportedOperationException("Injected bug for Room class");
+		if(description != null) {
+			return description;
 		}
+		GameEvents.Render event = GameEvents.Render.start();
 		String desc = "You see a " + this.adjective + " room.\nIt has a " + this.furnishing + ".\n";
 		if(northDoor != null) {
 			desc += "A " + this.northDoor + " door leads North.\n";
@@ -64,6 +74,15 @@ public class Room {
 		if(southDoor != null) {
 			desc += "A " + this.southDoor + " door leads South.\n";
 		}
+		description = desc;
+		if(event != null) {
+			event.commit("getDescription", desc);
+		}
 		return desc;
 	}
+	
+	// Write the description for the current room to out
+	public void writeDescription(Appendable out) throws IOException {
+		out.append(getDescription());
+	}
 }
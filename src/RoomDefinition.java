@@ -0,0 +1,45 @@
+/**
+ * A room to be added to a world together with the labels of the door leading
+ * to it from the south, as passed to World.addRooms.
+ */
+public class RoomDefinition {
+	private final Room room;
+	private final String northDoor;
+	private final String southDoor;
+	private final String source;
+	
+	/**
+	 * Class constructor to populate the class variables
+	 *
+	 * @param room      the room to add
+	 * @param northDoor label of the north door of the room before it, ignored for the first room
+	 * @param southDoor label of the south door of the room, ignored for the first room
+	 * @param source    where the room was defined, used when reporting problems, e.g. "house.csv:12"
+	 */
+	public RoomDefinition(Room room, String northDoor, String southDoor, String source) {
+		this.room = room;
+		this.northDoor = northDoor;
+		this.southDoor = southDoor;
+		this.source = source;
+	}
+	
+	// Return the room to add
+	public Room getRoom() {
+		return room;
+	}
+	
+	// Return the label of the north door of the room before this one
+	public String getNorthDoor() {
+		return northDoor;
+	}
+	
+	// Return the label of the south door of this room
+	public String getSouthDoor() {
+		return southDoor;
+	}
+	
+	// Return where the room was defined
+	public String getSource() {
+		return source;
+	}
+}
@@ -0,0 +1,89 @@
+import java.util.*;
+
+/**
+ * World keeping every room as a Room object in a list, with hash indexes
+ * for adjective/furnishing uniqueness and for looking rooms up by identity.
+ */
+public class RoomListWorld extends World {
+	
+	private final ArrayList<Room> rooms;
+	private final HashSet<String> adjectives;
+	private final HashSet<String> furnishings;
+	private final IdentityHashMap<Room, Integer> roomIndexes;
+	
+	public RoomListWorld() {
+		rooms = new ArrayList<Room>();
+		adjectives = new HashSet<String>();
+		furnishings = new HashSet<String>();
+		roomIndexes = new IdentityHashMap<Room, Integer>();
+	}
+	
+	@Override
+	public boolean addFirstRoom(Room room) {
+		//Check if room is null, the world is frozen or arraylist is empty
+		if(room == null || isFrozen() || !rooms.isEmpty())
+		{
+			return false;
+		}
+		
+		//Add room and index its adjective and furnishing for later uniqueness checks
+		rooms.add(room);
+		roomIndexes.put(room, 0);
+		adjectives.add(room.getAdjective());
+		furnishings.add(room.getFurnishing());
+		return true;
+	}
+	
+	@Override
+	public boolean addRoomAtNorth(Room room, String northDoor, String southDoor) {
+		//Check if either room, northDoor or southDoor are null and if the world is frozen or empty
+		if(room == null || northDoor == null || southDoor == null || isFrozen() || rooms.isEmpty())
+		{
+			return false;
+		}
+		
+		//Check for room uniqueness against the adjective and furnishing indexes
+		String adjective = room.getAdjective();
+		String furnishing = room.getFurnishing();
+		if(adjectives.contains(adjective) || furnishings.contains(furnishing))
+		{
+			return false;
+		}
+		//Set the northDoor of the northmost door to northDoor
+		rooms.get(rooms.size() - 1).setNorthDoor(northDoor);
+		//Add room to the list and index it
+		roomIndexes.put(room, rooms.size());
+		rooms.add(room);
+		adjectives.add(adjective);
+		furnishings.add(furnishing);
+		//Set the south door of the room we just added to southDoor
+		rooms.get(rooms.size() - 1).setSouthDoor(southDoor);
+		return true;
+	}
+	
+	@Override
+	public boolean usesAdjective(String adjective) {
+		return adjectives.contains(adjective);
+	}
+	
+	@Override
+	public boolean usesFurnishing(String furnishing) {
+		return furnishings.contains(furnishing);
+	}
+	
+	@Override
+	public int size() {
+		return rooms.size();
+	}
+	
+	@Override
+	public Room getRoom(int index) {
+		return rooms.get(index);
+	}
+	
+	@Override
+	public int indexOf(Room room) {
+		Integer index = roomIndexes.get(room);
+		return index == null ? -1 : index;
+	}
+}
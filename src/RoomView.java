@@ -0,0 +1,14 @@
+/**
+ * A Room materialised by a world that does not store Room objects, and its
+ * position in that world. Worlds keep the last one they handed out, so that
+ * indexOf can answer for it without a lookup.
+ */
+class RoomView {
+	final int index;
+	final Room room;
+	
+	RoomView(int index, Room room) {
+		this.index = index;
+		this.room = room;
+	}
+}
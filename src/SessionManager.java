@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionManager {
+	// Commands between two snapshots of a journaled session
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+	
+	// Frozen house shared by every session
+	private final World world;
+	private final Room firstRoom;
+	private final AtomicInteger openSessions;
+	// Metrics shared by every session, or null if metrics are off
+	private volatile CommandMetrics metrics;
+	// Journal of every session, or null if sessions are not journaled
+	private final CommandJournal journal;
+	private final int snapshotInterval;
+	private final AtomicLong nextSessionId;
+	// Sessions rebuilt from the journal that have not been resumed yet, by id
+	private final Map<Long, JournaledSession> recovered;
+	
+	// Class constructor building the shared house once
+	public SessionManager() {
+		CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+		firstRoom = Game.buildHouse(builder);
+		world = builder.getWorld().freeze();
+		openSessions = new AtomicInteger();
+		journal = null;
+		snapshotInterval = 0;
+		nextSessionId = new AtomicLong(1);
+		recovered = new ConcurrentHashMap<Long, JournaledSession>();
+	}
+	
+	// Class constructor journaling every session to journalFile. Sessions that were open
+	// when the journal was last written are rebuilt from their last snapshot and the
+	// commands after it, and can be continued with resumeSession. The journal is then
+	// rewritten to hold only a snapshot of each of them, so it does not grow across restarts.
+	public SessionManager(Path journalFile, int snapshotInterval) throws IOException {
+		CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+		firstRoom = Game.buildHouse(builder);
+		world = builder.getWorld().freeze();
+		openSessions = new AtomicInteger();
+		this.snapshotInterval = snapshotInterval;
+		recovered = new ConcurrentHashMap<Long, JournaledSession>();
+		
+		final Map<Long, Recovery> sessions = new LinkedHashMap<Long, Recovery>();
+		final long[] lastId = { 0 };
+		CommandJournal.read(journalFile, new CommandJournal.Listener() {
+			public void opened(long session) {
+				sessions.put(session, new Recovery());
+				lastId[0] = Math.max(lastId[0], session);
+			}
+			
+			public void command(long session, String cmd) {
+				Recovery recovery = sessions.get(session);
+				if (recovery != null) {
+					recovery.commands.add(cmd);
+				}
+			}
+			
+			public void snapshot(long session, long state) {
+				Recovery recovery = sessions.get(session);
+				if (recovery != null) {
+					recovery.snapshot = state;
+					recovery.hasSnapshot = true;
+					recovery.commands.clear();
+				}
+			}
+			
+			public void closed(long session) {
+				sessions.remove(session);
+			}
+		});
+		nextSessionId = new AtomicLong(lastId[0] + 1);
+		
+		// Write the compacted journal next to the old one and swap it in atomically
+		Path compacted = Paths.get(journalFile + ".tmp");
+		Files.deleteIfExists(compacted);
+		CommandJournal rewrite = new CommandJournal(compacted);
+		List<JournaledSession> rebuilt = new ArrayList<JournaledSession>();
+		for (Map.Entry<Long, Recovery> entry : sessions.entrySet()) {
+			JournaledSession session = new JournaledSession(entry.getKey(), entry.getValue().replay(newGame()), rewrite, snapshotInterval);
+			rewrite.appendOpen(session.getId());
+			session.snapshot();
+			rebuilt.add(session);
+		}
+		rewrite.close();
+		Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		journal = new CommandJournal(journalFile);
+		for (JournaledSession session : rebuilt) {
+			recovered.put(session.getId(), new JournaledSession(session.getId(), session.getGame(), journal, snapshotInterval));
+			openSessions.incrementAndGet();
+		}
+	}
+	
+	// Start a new game in the first room with an empty inventory. Only the player and
+	// cursor are allocated per session; the rooms are shared with every other session.
+	public CoffeeMakerQuest openSession() {
+		CoffeeMakerQuestImpl session = newGame();
+		session.setMetrics(metrics);
+		openSessions.incrementAndGet();
+		if (journal == null) {
+			return session;
+		}
+		long id = nextSessionId.getAndIncrement();
+		try {
+			journal.appendOpen(id);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new JournaledSession(id, session, journal, snapshotInterval);
+	}
+	
+	private CoffeeMakerQuestImpl newGame() {
+		CoffeeMakerQuestImpl session = new CoffeeMakerQuestImpl(world);
+		session.setPlayer(Player.create());
+		session.setCurrentRoom(firstRoom);
+		return session;
+	}
+	
+	// Return the ids of the sessions rebuilt from the journal that have not been resumed yet
+	public Set<Long> getRecoveredSessions() {
+		return new TreeSet<Long>(recovered.keySet());
+	}
+	
+	// Continue a session rebuilt from the journal, or return null if there is no such
+	// session or it was already resumed
+	public CoffeeMakerQuest resumeSession(long id) {
+		JournaledSession session = recovered.remove(id);
+		if (session != null) {
+			session.getGame().setMetrics(metrics);
+		}
+		return session;
+	}
+	
+	// Return the journal id of a session, or -1 if it is not journaled
+	public long getSessionId(CoffeeMakerQuest session) {
+		return session instanceof JournaledSession ? ((JournaledSession) session).getId() : -1;
+	}
+	
+	// Record the commands of sessions opened from now on in metrics, or stop if metrics is null
+	public void setMetrics(CommandMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	// Mark a session returned by openSession as finished
+	public void closeSession(CoffeeMakerQuest session) {
+		openSessions.decrementAndGet();
+		if (session instanceof JournaledSession) {
+			try {
+				journal.appendClose(((JournaledSession) session).getId());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	// Whether every journal record of session is on disk; sessions that are not journaled always are
+	public boolean isDurable(CoffeeMakerQuest session) {
+		if (!(session instanceof JournaledSession)) {
+			return true;
+		}
+		try {
+			return ((JournaledSession) session).getLastSequence() <= journal.getDurableSequence();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	// Run listener on the journal's committer thread whenever journaled records reach the disk
+	public void setDurableListener(Runnable listener) {
+		if (journal != null) {
+			journal.setDurableListener(listener);
+		}
+	}
+	
+	// Return the number of sessions opened and not yet closed
+	public int getOpenSessions() {
+		return openSessions.get();
+	}
+	
+	// Write every journaled record to disk and close the journal
+	public void close() throws IOException {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+	
+	// State of a session read from the journal: its last snapshot and the commands after it
+	private static class Recovery {
+		long snapshot;
+		boolean hasSnapshot;
+		final List<String> commands = new ArrayList<String>();
+		
+		// Bring a new game to the recorded state by restoring the snapshot and
+		// replaying the commands after it through processCommand
+		CoffeeMakerQuestImpl replay(CoffeeMakerQuestImpl game) {
+			if (hasSnapshot) {
+				game.setState(snapshot);
+			}
+			for (String cmd : commands) {
+				game.processCommand(cmd);
+			}
+			return game;
+		}
+	}
+}
@@ -0,0 +1,357 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Model checker for the requirements in requirements.txt. Starting from the
+ * player in the southern-most room with an empty inventory, it runs a
+ * breadth-first search over every reachable game state (see GameState), using
+ * processCommand as the transition function, and checks an invariant for every
+ * command from every state. Each level of the search is split across a
+ * fork-join pool; states already seen are kept in a ConcurrentLongSet.
+ */
+public class StateExplorer {
+	// Commands tried from every state; lower-case commands are checked against upper-case ones
+	private static final char[] COMMANDS = { 'N', 'S', 'L', 'I', 'D', 'H' };
+	// States expanded by one task before the frontier is split further
+	private static final int CHUNK = 1024;
+	// Violations kept in a Result; further ones are only counted
+	private static final int MAX_VIOLATIONS = 100;
+	
+	public static void main(String[] args) throws Exception {
+		// Usage: StateExplorer [rooms [seed] | world file | world definition.csv]
+		// With no argument the standard house is explored
+		World world;
+		if (args.length == 0) {
+			CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+			Game.buildHouse(builder);
+			world = builder.getWorld().freeze();
+		}
+		else if (args[0].matches("\\d+")) {
+			world = generateHouse(Integer.parseInt(args[0]), args.length > 1 ? Long.parseLong(args[1]) : 1);
+		}
+		else if (args[0].endsWith(".csv")) {
+			world = WorldLoader.load(Paths.get(args[0]));
+		}
+		else {
+			world = WorldFile.open(Paths.get(args[0]));
+		}
+		
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long start = System.nanoTime();
+		Result result = new StateExplorer(world).explore(pool);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d rooms: %d states, %d transitions, %d levels in %.2f s (%.0f transitions/s, %d threads)%n",
+				world.size(), result.getStates(), result.getTransitions(), result.getLevels(), seconds,
+				result.getTransitions() / seconds, pool.getParallelism());
+		System.out.println("Winning states reachable: " + result.getWinningStates());
+		System.out.println("Violations: " + result.getViolationCount());
+		for (String violation : result.getViolations()) {
+			System.out.println(violation);
+		}
+	}
+	
+	// Build a frozen house of the given size with generated unique rooms and one coffee,
+	// cream and sugar placed in rooms chosen by seed
+	static World generateHouse(int rooms, long seed) {
+		World world = new CompactWorld(rooms);
+		Random random = new Random(seed);
+		Item[] items = new Item[rooms];
+		Arrays.fill(items, Item.NONE);
+		for (Item item : new Item[] { Item.COFFEE, Item.CREAM, Item.SUGAR }) {
+			items[random.nextInt(rooms)] = item;
+		}
+		world.addFirstRoom(new Room("Furnishing 0", "Adjective 0", items[0]));
+		for (int i = 1; i < rooms; i++) {
+			world.addRoomAtNorth(new Room("Furnishing " + i, "Adjective " + i, items[i]), "North " + i, "South " + i);
+		}
+		return world.freeze();
+	}
+	
+	private final World world;
+	private ConcurrentLongSet visited;
+	private final List<String> violations;
+	private long violationCount;
+	
+	// Class constructor for exploring the games played in world
+	public StateExplorer(World world) {
+		this.world = world;
+		this.violations = new ArrayList<String>();
+	}
+	
+	/**
+	 * Explore every state reachable from the start of a game.
+	 *
+	 * @param pool the pool to expand the states of each level on
+	 * @return the number of states and transitions and every invariant violation found
+	 */
+	public Result explore(ForkJoinPool pool) {
+		visited = new ConcurrentLongSet(checkStates(world));
+		violations.clear();
+		violationCount = 0;
+		long start = GameState.pack(0, 0, false);
+		visited.add(start);
+		long[] frontier = { start };
+		long states = 1;
+		long transitions = 0;
+		long winningStates = 0;
+		int levels = 0;
+		while (frontier.length > 0) {
+			Expansion expansion = pool.invoke(new Expand(frontier, 0, frontier.length));
+			levels++;
+			states += expansion.next.length;
+			transitions += expansion.transitions;
+			winningStates += expansion.winningStates;
+			frontier = expansion.next;
+		}
+		return new Result(states, transitions, levels, winningStates, violationCount, new ArrayList<String>(violations));
+	}
+	
+	/**
+	 * Return the most states a game in world can reach: every room with every
+	 * inventory made of the items the world holds, before and after drinking.
+	 *
+	 * @param world the world to explore
+	 * @return the number of states the visited set must hold
+	 * @throws IllegalArgumentException if the states cannot be held in the
+	 *                                  visited set or the heap
+	 */
+	static int checkStates(World world) {
+		long states = world.size() * 2L;
+		if (states <= ConcurrentLongSet.MAX_SIZE) {
+			int items = 0;
+			for (int i = 0; i < world.size(); i++) {
+				items |= Player.itemBit(world.getItem(i));
+			}
+			states <<= Integer.bitCount(items);
+		}
+		if (states > ConcurrentLongSet.MAX_SIZE) {
+			throw new IllegalArgumentException("A world of " + world.size() + " rooms has up to " + states
+					+ " states; at most " + ConcurrentLongSet.MAX_SIZE + " can be explored");
+		}
+		long bytes = ConcurrentLongSet.bytes((int) states);
+		long heap = Runtime.getRuntime().maxMemory();
+		if (bytes > heap) {
+			throw new IllegalArgumentException("A world of " + world.size() + " rooms needs " + (bytes >> 20)
+					+ " MB to remember its states, more than the " + (heap >> 20) + " MB heap");
+		}
+		return (int) states;
+	}
+	
+	// Record a violation of the named requirement by cmd in state
+	private synchronized void violation(String requirement, long state, String cmd, String detail) {
+		violationCount++;
+		if (violations.size() < MAX_VIOLATIONS) {
+			violations.add(requirement + " violated by " + cmd + " in " + GameState.toString(state) + ": " + detail);
+		}
+	}
+	
+	// Run every command from state, check the invariants and return the successors not seen before
+	private void expand(CoffeeMakerQuestImpl game, long state, Expansion out) {
+		if (GameState.drank(state)) {
+			// The game is over, so there is nothing left to do
+			return;
+		}
+		int index = GameState.roomIndex(state);
+		int mask = GameState.inventoryMask(state);
+		for (char cmd : COMMANDS) {
+			game.setState(state);
+			String response = game.processCommand(cmd);
+			long next = game.getState();
+			out.transitions++;
+			
+			game.setState(state);
+			String lowerResponse = game.processCommand(Character.toLowerCase(cmd));
+			if (!lowerResponse.equals(response) || game.getState() != next) {
+				violation("FUN-INPUT-CAPS", state, String.valueOf(cmd), "lower-case command behaves differently");
+			}
+			check(cmd, state, index, mask, response, next);
+			
+			if (visited.add(next)) {
+				out.add(next);
+				if (GameState.drank(next) && GameState.inventoryMask(next) == CoffeeMakerQuestImpl.DRINK_RESPONSES.length - 1) {
+					out.winningStates++;
+				}
+			}
+		}
+		
+		game.setState(state);
+		String response = game.processCommand("X");
+		out.transitions++;
+		if (!response.equals("What?") || game.getState() != state) {
+			violation("FUN-UNKNOWN-COMMAND", state, "X", "response \"" + response + "\" to an unknown command");
+		}
+	}
+	
+	// Check the requirement covering cmd for the transition from state to next
+	private void check(char cmd, long state, int index, int mask, String response, long next) {
+		int nextIndex = GameState.roomIndex(next);
+		int nextMask = GameState.inventoryMask(next);
+		boolean over = GameState.drank(next);
+		switch (cmd) {
+			case 'N':
+			case 'S':
+				int expected = cmd == 'N' ? Math.min(index + 1, world.size() - 1) : Math.max(index - 1, 0);
+				if (nextIndex != expected || nextMask != mask || over) {
+					violation("FUN-MOVE", state, String.valueOf(cmd), "moved to " + GameState.toString(next));
+				}
+				break;
+			case 'L':
+				int found = Player.itemBit(world.getItem(index));
+				if (nextMask != (mask | found) || nextIndex != index || over) {
+					violation("FUN-LOOK", state, "L", "moved to " + GameState.toString(next));
+				}
+				break;
+			case 'I':
+				boolean listed = response.contains("YOU HAVE NO COFFEE!") == ((mask & Player.itemBit(Item.COFFEE)) == 0)
+						&& response.contains("YOU HAVE NO CREAM!") == ((mask & Player.itemBit(Item.CREAM)) == 0)
+						&& response.contains("YOU HAVE NO SUGAR!") == ((mask & Player.itemBit(Item.SUGAR)) == 0);
+				if (!listed || next != state) {
+					violation("FUN-INVENTORY", state, "I", "response \"" + response + "\"");
+				}
+				break;
+			case 'H':
+				if (!response.contains("N - ") || !response.contains("S - ") || !response.contains("L - ") || !response.contains("I - ")
+						|| !response.contains("D - ") || next != state) {
+					violation("FUN-HELP", state, "H", "response \"" + response + "\"");
+				}
+				break;
+			case 'D':
+				boolean all = mask == CoffeeMakerQuestImpl.DRINK_RESPONSES.length - 1;
+				if (!over) {
+					violation(all ? "FUN-WIN" : "FUN-LOSE", state, "D", "game is not over after drinking");
+				}
+				if (all != response.contains("You win!")) {
+					violation("FUN-WIN", state, "D", "response \"" + response + "\"");
+				}
+				if (all == response.contains("You lose!")) {
+					violation("FUN-LOSE", state, "D", "response \"" + response + "\"");
+				}
+				break;
+			default:
+				break;
+		}
+	}
+	
+	// Successors found while expanding part of a frontier
+	private static class Expansion {
+		long[] next = new long[16];
+		int size;
+		long transitions;
+		long winningStates;
+		
+		void add(long state) {
+			if (size == next.length) {
+				next = Arrays.copyOf(next, size * 2);
+			}
+			next[size++] = state;
+		}
+		
+		// Trim next to the states found
+		Expansion finish() {
+			next = Arrays.copyOf(next, size);
+			return this;
+		}
+		
+		// Combine the successors of two halves of a frontier
+		static Expansion merge(Expansion left, Expansion right) {
+			Expansion merged = new Expansion();
+			merged.next = new long[left.next.length + right.next.length];
+			System.arraycopy(left.next, 0, merged.next, 0, left.next.length);
+			System.arraycopy(right.next, 0, merged.next, left.next.length, right.next.length);
+			merged.size = merged.next.length;
+			merged.transitions = left.transitions + right.transitions;
+			merged.winningStates = left.winningStates + right.winningStates;
+			return merged;
+		}
+	}
+	
+	// Expand frontier[from] to frontier[to - 1], splitting the range in halves until it is small
+	private class Expand extends RecursiveTask<Expansion> {
+		private static final long serialVersionUID = 1L;
+		private final long[] frontier;
+		private final int from;
+		private final int to;
+		
+		Expand(long[] frontier, int from, int to) {
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected Expansion compute() {
+			if (to - from > CHUNK) {
+				int middle = (from + to) >>> 1;
+				Expand left = new Expand(frontier, from, middle);
+				left.fork();
+				Expansion right = new Expand(frontier, middle, to).compute();
+				return Expansion.merge(left.join(), right);
+			}
+			// Each task plays on its own game and player; only the world is shared
+			CoffeeMakerQuestImpl game = new CoffeeMakerQuestImpl(world);
+			game.setPlayer(new Player());
+			Expansion out = new Expansion();
+			for (int i = from; i < to; i++) {
+				expand(game, frontier[i], out);
+			}
+			return out.finish();
+		}
+	}
+	
+	/**
+	 * Outcome of an exploration.
+	 */
+	public static class Result {
+		private final long states;
+		private final long transitions;
+		private final int levels;
+		private final long winningStates;
+		private final long violationCount;
+		private final List<String> violations;
+		
+		Result(long states, long transitions, int levels, long winningStates, long violationCount, List<String> violations) {
+			this.states = states;
+			this.transitions = transitions;
+			this.levels = levels;
+			this.winningStates = winningStates;
+			this.violationCount = violationCount;
+			this.violations = Collections.unmodifiableList(violations);
+		}
+		
+		// Return the number of distinct reachable states
+		public long getStates() {
+			return states;
+		}
+		
+		// Return the number of commands run
+		public long getTransitions() {
+			return transitions;
+		}
+		
+		// Return the number of breadth-first levels, one more than the longest shortest path to a state
+		public int getLevels() {
+			return levels;
+		}
+		
+		// Return the number of reachable states in which the game has been won
+		public long getWinningStates() {
+			return winningStates;
+		}
+		
+		// Return the number of invariant violations found
+		public long getViolationCount() {
+			return violationCount;
+		}
+		
+		// Return a description of the first violations found, at most 100
+		public List<String> getViolations() {
+			return violations;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class StateExplorerTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for exploring every reachable state of the standard house.
+	 * Preconditions: The standard house has been built and frozen.
+	 * Execution steps: Call explore on a StateExplorer for the world.
+	 * Postconditions: All 6 rooms x 8 inventories x playing or over (96 states) are reachable.
+	 *                 A winning state is reachable from every room and no requirement is violated.
+	 */
+	@Test
+	public void testStateExplorer() {
+		// Set preconditions
+		CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+		Game.buildHouse(builder);
+		World world = builder.getWorld().freeze();
+		
+		// Execute steps
+		StateExplorer.Result result = new StateExplorer(world).explore(java.util.concurrent.ForkJoinPool.commonPool());
+		
+		assertEquals("Violations found: " + result.getViolations(), 0, result.getViolationCount());
+		assertEquals("Number of reachable states was incorrect", 96, result.getStates());
+		assertEquals("Number of reachable winning states was incorrect", 6, result.getWinningStates());
+	}
+	
+	/**
+	 * Test case for sizing the states of an exploration.
+	 * Preconditions: A frozen RoomListWorld holding the Small, Funny and Refinanced rooms and a GeneratedWorld of Integer.MAX_VALUE rooms have been built.
+	 * Execution steps: Call checkStates for both worlds.
+	 * Postconditions: The small world has 3 rooms x 4 inventories of the coffee and cream x playing or over (24 states).
+	 *                 The generated world is rejected with an IllegalArgumentException.
+	 */
+	@Test
+	public void testStateExplorerCheckStates() {
+		// Set preconditions
+		World world = new RoomListWorld();
+		world.addFirstRoom(Room.create("Quaint sofa", "Small", Item.CREAM));
+		world.addRoomAtNorth(Room.create("Sad record player", "Funny", Item.NONE), "Magenta", "Massive");
+		world.addRoomAtNorth(Room.create("Tight pizza", "Refinanced", Item.COFFEE), "Beige", "Smart");
+		world.freeze();
+		
+		// Execute steps
+		assertEquals("Number of states was incorrect", 24, StateExplorer.checkStates(world));
+		try {
+			StateExplorer.checkStates(new GeneratedWorld(Integer.MAX_VALUE, 1));
+			fail("A world too large to explore was accepted");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Message does not give the number of rooms: " + e.getMessage(), e.getMessage().contains(String.valueOf(Integer.MAX_VALUE)));
+		}
+	}
+}
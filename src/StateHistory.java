@@ -0,0 +1,58 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Stack of packed game states (see GameState) backed by a long array, for undo
+ * and rewind. Pushing a state copies 8 bytes instead of cloning the player and
+ * rooms.
+ */
+public class StateHistory {
+	private long[] states;
+	private int size;
+	
+	public StateHistory() {
+		states = new long[16];
+		size = 0;
+	}
+	
+	// Push the current state of game
+	public void record(CoffeeMakerQuestImpl game) {
+		push(game.getState());
+	}
+	
+	// Put game back in the most recently recorded state and forget that state.
+	// Return false, leaving the game unchanged, if no state is recorded.
+	public boolean undo(CoffeeMakerQuestImpl game) {
+		if (size == 0) {
+			return false;
+		}
+		game.setState(pop());
+		return true;
+	}
+	
+	// Push a state
+	public void push(long state) {
+		if (size == states.length) {
+			states = Arrays.copyOf(states, size * 2);
+		}
+		states[size++] = state;
+	}
+	
+	// Remove and return the most recently pushed state
+	public long pop() {
+		if (size == 0) {
+			throw new NoSuchElementException("No state recorded");
+		}
+		return states[--size];
+	}
+	
+	// Return the number of recorded states
+	public int size() {
+		return size;
+	}
+	
+	// Forget every recorded state
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,155 @@
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary assigning a dense int id to every distinct string added to it.
+ * The strings are stored as UTF-8 bytes in a single array rather than as String
+ * objects, and looked up through an open-addressing table of ids, so the
+ * per-string overhead is a few ints instead of two object headers and a hash
+ * map entry. Strings are only materialised again by get.
+ */
+class StringTable {
+	// Maximum fraction of used slots before the slot table is doubled
+	private static final float LOAD_FACTOR = 0.7f;
+	
+	private byte[] bytes;
+	private int used;
+	// Start of string i in bytes; offsets[count] is the end of the last string
+	private int[] offsets;
+	private int count;
+	// id + 1 of the string hashed to each slot, 0 for an empty slot
+	private int[] slots;
+	
+	StringTable() {
+		bytes = new byte[256];
+		used = 0;
+		offsets = new int[16];
+		count = 0;
+		slots = new int[16];
+	}
+	
+	// Return the number of strings in the table
+	int size() {
+		return count;
+	}
+	
+	// Return the id of s, adding it to the table if needed
+	int intern(String s) {
+		byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+		int slot = findSlot(encoded);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		int id = add(encoded);
+		slots[slot] = id + 1;
+		if (count > slots.length * LOAD_FACTOR) {
+			rehash(slots.length * 2);
+		}
+		return id;
+	}
+	
+	// Return the id of s, or -1 if s is not in the table
+	int find(String s) {
+		int id = slots[findSlot(s.getBytes(StandardCharsets.UTF_8))];
+		return id - 1;
+	}
+	
+	// Return the string with the given id
+	String get(int id) {
+		return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+	}
+	
+	// Whether the string with the given id equals s
+	boolean matches(int id, String s) {
+		return s != null && get(id).equals(s);
+	}
+	
+	// Return the total number of UTF-8 bytes of all strings
+	int byteSize() {
+		return used;
+	}
+	
+	// Write the start offset of every string followed by the end offset of the last one
+	void writeOffsets(DataOutput out) throws IOException {
+		for (int i = 0; i <= count; i++) {
+			out.writeInt(offsets[i]);
+		}
+	}
+	
+	// Write the UTF-8 bytes of all strings, in id order
+	void writeBytes(DataOutput out) throws IOException {
+		out.write(bytes, 0, used);
+	}
+	
+	// Release spare capacity once no more strings will be added
+	void trimToSize() {
+		bytes = Arrays.copyOf(bytes, used);
+		offsets = Arrays.copyOf(offsets, count + 1);
+	}
+	
+	private int add(byte[] encoded) {
+		if (used + encoded.length < 0) {
+			throw new IllegalStateException("String table is full");
+		}
+		if (used + encoded.length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(used + encoded.length, (int) Math.min(Integer.MAX_VALUE - 8, bytes.length * 2L)));
+		}
+		if (count + 2 > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		System.arraycopy(encoded, 0, bytes, used, encoded.length);
+		offsets[count] = used;
+		used += encoded.length;
+		offsets[count + 1] = used;
+		return count++;
+	}
+	
+	// Return the slot holding encoded, or the empty slot where it would be added
+	private int findSlot(byte[] encoded) {
+		int mask = slots.length - 1;
+		int slot = hash(encoded, 0, encoded.length) & mask;
+		while (slots[slot] != 0 && !equalsAt(slots[slot] - 1, encoded)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	private boolean equalsAt(int id, byte[] encoded) {
+		int start = offsets[id];
+		int length = offsets[id + 1] - start;
+		if (length != encoded.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (bytes[start + i] != encoded[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void rehash(int capacity) {
+		slots = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < count; id++) {
+			int slot = hash(bytes, offsets[id], offsets[id + 1]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+	
+	// Hash of the bytes from (inclusive) to to (exclusive), as used for the slot table
+	static int hash(byte[] b, int from, int to) {
+		int h = 0;
+		for (int i = from; i < to; i++) {
+			h = 31 * h + b[i];
+		}
+		// Spread the bits so that similar strings do not cluster in the table
+		h *= 0x9E3779B1;
+		return h ^ (h >>> 16);
+	}
+}
@@ -1,27 +1,80 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.junit.runner.*;
 import org.junit.runner.notification.*;
 
 public class TestRunner {
-	public static void main(String[] args) {
+	// Timed runs of each mode in "compare" mode
+	private static final int COMPARE_RUNS = 4;
 
-		if (args.length > 0 && args[0].equals("buggy")) {
+	public static void main(String[] args) throws Exception {
+		// Options: "buggy" tests the buggy implementation, "parallel" runs the test
+		// methods in parallel on a ForkJoinPool, "compare" runs the suite both
+		// sequentially and in parallel and reports the mean wall time of each.
+		List<String> options = Arrays.asList(args);
+		final boolean buggy = options.contains("buggy");
+		boolean parallel = options.contains("parallel");
+		boolean compare = options.contains("compare");
+
+		if (buggy) {
 			Config.setBuggyCoffeeMakerQuest(true);
 			System.out.println("TESTING BUGGY IMPLEMENTATION\n");
 		}
-		
+
 		ArrayList<Class> classesToTest = new ArrayList<Class>();
 		boolean anyFailures = false;
 
 		// ADD ANY CLASSES YOU WISH TO TEST HERE
 		classesToTest.add(CoffeeMakerQuestTest.class);
+		classesToTest.add(WorldFileTest.class);
+		classesToTest.add(WorldLoaderTest.class);
+		classesToTest.add(CommandMetricsTest.class);
+		classesToTest.add(GameEventsTest.class);
+		classesToTest.add(CommandJournalTest.class);
+		classesToTest.add(StateExplorerTest.class);
+		classesToTest.add(DifferentialFuzzerTest.class);
 
 		// For all test classes added, loop through and use JUnit
 		// to run them.
 
-		for (Class c : classesToTest) {
-			Result r = JUnitCore.runClasses(c);
+		List<Result> results;
+		if (compare) {
+			// One untimed run of each warms up the JIT, then the timed runs alternate which mode
+			// goes first so that neither profits from running after the other
+			runSequential(classesToTest);
+			results = runParallel(classesToTest, buggy);
+			long sequentialTime = 0;
+			long parallelTime = 0;
+			for (int run = 0; run < COMPARE_RUNS; run++) {
+				for (int mode = 0; mode < 2; mode++) {
+					boolean sequential = (run + mode) % 2 == 0;
+					long start = System.nanoTime();
+					if (sequential) {
+						runSequential(classesToTest);
+						sequentialTime += System.nanoTime() - start;
+					}
+					else {
+						results = runParallel(classesToTest, buggy);
+						parallelTime += System.nanoTime() - start;
+					}
+				}
+			}
+			System.out.printf("Sequential: %.2f ms%nParallel:   %.2f ms (%d threads)%nSpeed-up:   %.2fx (mean of %d runs each, after a warmup run)%n%n",
+					sequentialTime / 1e6 / COMPARE_RUNS, parallelTime / 1e6 / COMPARE_RUNS, ForkJoinPool.commonPool().getParallelism(),
+					(double) sequentialTime / parallelTime, COMPARE_RUNS);
+		}
+		else {
+			long start = System.nanoTime();
+			results = parallel ? runParallel(classesToTest, buggy) : runSequential(classesToTest);
+			System.out.printf("Ran tests in %.2f ms%n%n", (System.nanoTime() - start) / 1e6);
+		}
+
+		for (Result r : results) {
 
 			// Print out any failures for this class.
 
@@ -50,4 +103,36 @@ public class TestRunner {
 			System.out.println("\nALL TESTS PASSED");
 		}
 	}
+
+	// Run each class, one after the other, on the calling thread
+	private static List<Result> runSequential(List<Class> classesToTest) {
+		List<Result> results = new ArrayList<Result>();
+		for (Class c : classesToTest) {
+			results.add(JUnitCore.runClasses(c));
+		}
+		return results;
+	}
+
+	// Run every test method of every class as its own task on the common ForkJoinPool.
+	// Config flags are per thread, so each task sets the CoffeeMakerQuest flag itself
+	// and the tests set the Player and Room flags in their own setup.
+	private static List<Result> runParallel(List<Class> classesToTest, final boolean buggy) throws Exception {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (Class c : classesToTest) {
+			for (Description method : Request.aClass(c).getRunner().getDescription().getChildren()) {
+				final Request request = Request.method(c, method.getMethodName());
+				futures.add(ForkJoinPool.commonPool().submit(new Callable<Result>() {
+					public Result call() {
+						Config.setBuggyCoffeeMakerQuest(buggy);
+						return new JUnitCore().run(request);
+					}
+				}));
+			}
+		}
+		List<Result> results = new ArrayList<Result>();
+		for (Future<Result> future : futures) {
+			results.add(future.get());
+		}
+		return results;
+	}
 }
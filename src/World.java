@@ -0,0 +1,179 @@
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The rooms of a house, from south (index 0) to north. A World is built with
+ * addFirstRoom/addRoomAtNorth and then frozen, after which it never changes and
+ * can be shared by any number of games; each game only keeps its own player,
+ * current room and game over state.
+ */
+public abstract class World {
+	
+	private boolean frozen;
+	
+	protected World() {
+		frozen = false;
+	}
+	
+	/**
+	 * Add the first room in the world. If room is null, if this not the first room
+	 * or if the world is frozen, the room is not added and false is returned.
+	 *
+	 * @param room the room to add
+	 * @return true if successful, false otherwise
+	 */
+	public abstract boolean addFirstRoom(Room room);
+	
+	/**
+	 * Attach room to the northern-most room, following the rules of
+	 * CoffeeMakerQuest.addRoomAtNorth. Rooms cannot be added to a frozen world.
+	 *
+	 * @param room      the room to add
+	 * @param northDoor string to label the north door of the current northern-most room
+	 * @param southDoor string to label the south door of the newly added room
+	 * @return true if successful, false otherwise
+	 */
+	public abstract boolean addRoomAtNorth(Room room, String northDoor, String southDoor);
+	
+	/**
+	 * Add rooms in order, the first one as the first room if the world is empty
+	 * and every other one at the north. Rooms reusing an adjective or furnishing
+	 * of an earlier room, or missing a door label, are skipped and described in
+	 * problems, so every duplicate is reported in a single pass. Definitions are
+	 * consumed one at a time and never collected.
+	 *
+	 * @param definitions the rooms to add, south to north
+	 * @param problems    list to append a description of every skipped room to
+	 * @return the number of rooms added
+	 * @throws IllegalStateException if the world is frozen
+	 */
+	public int addRooms(Iterator<RoomDefinition> definitions, List<String> problems) {
+		if(isFrozen())
+		{
+			throw new IllegalStateException("Cannot add rooms to a frozen world");
+		}
+		GameEvents.WorldBuild event = new GameEvents.WorldBuild();
+		event.begin();
+		int added = 0;
+		while(definitions.hasNext())
+		{
+			RoomDefinition definition = definitions.next();
+			Room room = definition.getRoom();
+			
+			//Check the room against the adjectives and furnishings already in use, reporting both if both are duplicates
+			String problem = "";
+			if(usesAdjective(room.getAdjective()))
+			{
+				problem += ", duplicate adjective \"" + room.getAdjective() + "\"";
+			}
+			if(usesFurnishing(room.getFurnishing()))
+			{
+				problem += ", duplicate furnishing \"" + room.getFurnishing() + "\"";
+			}
+			if(problem.isEmpty())
+			{
+				boolean ok = size() == 0 ? addFirstRoom(room) : addRoomAtNorth(room, definition.getNorthDoor(), definition.getSouthDoor());
+				if(ok)
+				{
+					added++;
+					continue;
+				}
+				problem = ", room or door labels rejected";
+			}
+			problems.add(definition.getSource() + ": " + problem.substring(2));
+		}
+		event.commit("addRooms", added, size());
+		return added;
+	}
+	
+	/**
+	 * Whether a room with the given adjective has been added. The default
+	 * implementation looks at every room.
+	 *
+	 * @param adjective the adjective to look for
+	 * @return true if a room uses the adjective, false otherwise
+	 */
+	public boolean usesAdjective(String adjective) {
+		for(int i = 0; i < size(); i++)
+		{
+			String used = getRoom(i).getAdjective();
+			if(used == null ? adjective == null : used.equals(adjective))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Whether a room with the given furnishing has been added. The default
+	 * implementation looks at every room.
+	 *
+	 * @param furnishing the furnishing to look for
+	 * @return true if a room uses the furnishing, false otherwise
+	 */
+	public boolean usesFurnishing(String furnishing) {
+		for(int i = 0; i < size(); i++)
+		{
+			String used = getRoom(i).getFurnishing();
+			if(used == null ? furnishing == null : used.equals(furnishing))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Stop accepting rooms so the world can be shared between games.
+	 *
+	 * @return this world
+	 */
+	public World freeze() {
+		frozen = true;
+		return this;
+	}
+	
+	/**
+	 * Whether rooms can no longer be added.
+	 *
+	 * @return true if frozen, false otherwise
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+	
+	/**
+	 * The number of rooms in the world.
+	 *
+	 * @return number of rooms
+	 */
+	public abstract int size();
+	
+	/**
+	 * The room at the given position, 0 being the southern-most room. Worlds
+	 * that do not keep Room objects may return a new view of the room on every call.
+	 *
+	 * @param index position of the room
+	 * @return the room
+	 */
+	public abstract Room getRoom(int index);
+	
+	/**
+	 * The item in the room at the given position, without materialising the room.
+	 *
+	 * @param index position of the room
+	 * @return the item
+	 */
+	public Item getItem(int index) {
+		return getRoom(index).getItem();
+	}
+	
+	/**
+	 * The position of room in the world.
+	 *
+	 * @param room the room to look up
+	 * @return position of the room, or -1 if room is not in the world
+	 */
+	public abstract int indexOf(Room room);
+}
@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Binary world file format. A world file is written once by write, which checks
+ * that adjectives and furnishings are unique and replaces the target file
+ * atomically, and opened by open, which maps the file into memory and returns a
+ * MappedWorld reading rooms straight from the mapping. Opening only checks the
+ * header, so it takes the same time for any number of rooms.
+ *
+ * All numbers are big-endian. The file is laid out as:
+ *
+ *   header         magic, version, room count, string count, string bytes and
+ *                  slots per index (six ints)
+ *   string table   string count + 1 int offsets followed by the UTF-8 bytes of
+ *                  every adjective, furnishing and door label
+ *   room records   one record per room, south to north: adjective id, furnishing
+ *                  id, item ordinal (one byte), north door id and south door id
+ *                  (-1 for no door)
+ *   adjective index  open-addressing table of room index + 1 (0 for an empty
+ *                  slot), hashed by adjective, used to look rooms up by value
+ *   furnishing index  table of the same layout and size, hashed by furnishing
+ */
+public class WorldFile {
+	static final int MAGIC = 0x434D5157; // "CMQW"
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 6 * 4;
+	static final int RECORD_SIZE = 4 + 4 + 1 + 4 + 4;
+	static final int NO_DOOR = -1;
+	
+	public static void main(String[] args) throws IOException {
+		// Usage: WorldFile write <file> [rooms] writes the standard house, or a house of
+		// generated rooms if a room count is given; WorldFile import <definition> <file>
+		// writes the house of a text world definition (see WorldLoader); WorldFile info <file>
+		// describes a file
+		if (args.length < 2 || (args[0].equals("import") && args.length < 3)) {
+			System.out.println("Usage: WorldFile write <file> [rooms] | WorldFile import <definition> <file> | WorldFile info <file>");
+			return;
+		}
+		Path path = Paths.get(args[1]);
+		if (args[0].equals("import")) {
+			long start = System.nanoTime();
+			World world = WorldLoader.load(path);
+			write(world, Paths.get(args[2]));
+			System.out.printf("Imported %d rooms to %s in %.2f ms%n", world.size(), args[2], (System.nanoTime() - start) / 1e6);
+		}
+		else if (args[0].equals("write")) {
+			CoffeeMakerQuestImpl builder = new CoffeeMakerQuestImpl();
+			if (args.length > 2) {
+				int rooms = Integer.parseInt(args[2]);
+				builder.addFirstRoom(new Room("Furnishing 0", "Adjective 0", Item.NONE));
+				for (int i = 1; i < rooms; i++) {
+					builder.addRoomAtNorth(new Room("Furnishing " + i, "Adjective " + i, Item.values()[i & 3]), "North " + i, "South " + i);
+				}
+			}
+			else {
+				Game.buildHouse(builder);
+			}
+			long start = System.nanoTime();
+			write(builder.getWorld(), path);
+			System.out.printf("Wrote %d rooms to %s in %.2f ms%n", builder.getWorld().size(), path, (System.nanoTime() - start) / 1e6);
+		}
+		else {
+			long start = System.nanoTime();
+			World world = open(path);
+			System.out.printf("Opened %d rooms in %.3f ms%n", world.size(), (System.nanoTime() - start) / 1e6);
+			if (world.size() > 0) {
+				System.out.println(world.getRoom(0).getDescription());
+			}
+		}
+	}
+	
+	/**
+	 * Write world to a world file at path, replacing any existing file. The file
+	 * is written next to path and moved over it once complete, so a reader never
+	 * maps a partly written file and a failed write leaves the old file in place.
+	 *
+	 * @param world the world to write
+	 * @param path  the file to write
+	 * @throws IllegalArgumentException if two rooms share an adjective or a furnishing,
+	 *                                  or a room has no adjective or furnishing
+	 * @throws IOException              if the file cannot be written or would be larger
+	 *                                  than a single mapping allows
+	 */
+	public static void write(World world, Path path) throws IOException {
+		int size = world.size();
+		StringTable strings = new StringTable();
+		int[] adjectives = new int[size];
+		int[] furnishings = new int[size];
+		byte[] items = new byte[size];
+		int[] northDoors = new int[size];
+		int[] southDoors = new int[size];
+		BitSet usedAdjectives = new BitSet();
+		BitSet usedFurnishings = new BitSet();
+		
+		//Intern every string and check for room uniqueness against the ids already in use
+		for (int i = 0; i < size; i++) {
+			Room room = world.getRoom(i);
+			if (room.getAdjective() == null || room.getFurnishing() == null) {
+				throw new IllegalArgumentException("Room " + i + " has no adjective or furnishing");
+			}
+			adjectives[i] = strings.intern(room.getAdjective());
+			furnishings[i] = strings.intern(room.getFurnishing());
+			if (usedAdjectives.get(adjectives[i])) {
+				throw new IllegalArgumentException("Duplicate adjective in room " + i + ": " + room.getAdjective());
+			}
+			if (usedFurnishings.get(furnishings[i])) {
+				throw new IllegalArgumentException("Duplicate furnishing in room " + i + ": " + room.getFurnishing());
+			}
+			usedAdjectives.set(adjectives[i]);
+			usedFurnishings.set(furnishings[i]);
+			items[i] = (byte) room.getItem().ordinal();
+			northDoors[i] = room.getNorthDoor() == null ? NO_DOOR : strings.intern(room.getNorthDoor());
+			southDoors[i] = room.getSouthDoor() == null ? NO_DOOR : strings.intern(room.getSouthDoor());
+		}
+		
+		int[] adjectiveIndex = buildIndex(strings, adjectives);
+		int[] furnishingIndex = buildIndex(strings, furnishings);
+		long length = HEADER_SIZE + (strings.size() + 1) * 4L + strings.byteSize() + (long) size * RECORD_SIZE + adjectiveIndex.length * 8L;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("World of " + size + " rooms is too large for a world file");
+		}
+		
+		Path temp = Paths.get(path + ".tmp");
+		FileOutputStream file = new FileOutputStream(temp.toFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+		boolean written = false;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(size);
+			out.writeInt(strings.size());
+			out.writeInt(strings.byteSize());
+			out.writeInt(adjectiveIndex.length);
+			strings.writeOffsets(out);
+			strings.writeBytes(out);
+			for (int i = 0; i < size; i++) {
+				out.writeInt(adjectives[i]);
+				out.writeInt(furnishings[i]);
+				out.writeByte(items[i]);
+				out.writeInt(northDoors[i]);
+				out.writeInt(southDoors[i]);
+			}
+			for (int slot : adjectiveIndex) {
+				out.writeInt(slot);
+			}
+			for (int slot : furnishingIndex) {
+				out.writeInt(slot);
+			}
+			out.flush();
+			file.getFD().sync();
+			written = true;
+		} finally {
+			out.close();
+			if (!written) {
+				Files.deleteIfExists(temp);
+			}
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	// Build an index of the rooms by the string ids given for them, with at least
+	// twice as many slots as rooms
+	private static int[] buildIndex(StringTable strings, int[] ids) {
+		int capacity = Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) << 1;
+		int[] index = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < ids.length; i++) {
+			byte[] encoded = strings.get(ids[i]).getBytes(StandardCharsets.UTF_8);
+			int slot = StringTable.hash(encoded, 0, encoded.length) & mask;
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = i + 1;
+		}
+		return index;
+	}
+	
+	/**
+	 * Map a world file into memory. Only the header is read; rooms are read from
+	 * the mapping when they are requested. The returned world is frozen.
+	 *
+	 * @param path the file to open
+	 * @return the world stored in the file
+	 * @throws IOException if the file cannot be read or is not a world file of a supported version
+	 */
+	public static MappedWorld open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large for a world file");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedWorld(buffer, path.toString());
+		} finally {
+			// The mapping stays valid after the channel is closed
+			channel.close();
+		}
+	}
+	
+	// Check the header of buffer and that the sections it describes fit in the buffer
+	static void checkHeader(ByteBuffer buffer, String name) throws IOException {
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException(name + " is not a world file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException(name + " has unsupported world file version " + buffer.getInt(4));
+		}
+		int rooms = buffer.getInt(8);
+		int strings = buffer.getInt(12);
+		int stringBytes = buffer.getInt(16);
+		int slots = buffer.getInt(20);
+		long length = HEADER_SIZE + (strings + 1L) * 4 + stringBytes + (long) rooms * RECORD_SIZE + slots * 8L;
+		if (rooms < 0 || strings < 0 || stringBytes < 0 || slots <= 0 || Integer.bitCount(slots) != 1 || length != buffer.capacity()) {
+			throw new IOException(name + " is truncated or corrupt");
+		}
+	}
+}
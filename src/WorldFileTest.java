@@ -0,0 +1,75 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class WorldFileTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for writing a world file and playing on the mapped world.
+	 * Preconditions: A RoomListWorld holding rooms Small, Funny and Refinanced has been built.
+	 * Execution steps: Call WorldFile.write for the world and a temporary file.
+	 *                  Call WorldFile.open for the file and create a game from the mapped world.
+	 *                  Call setCurrentRoom with an equal room, processCommand("N") and getCurrentRoom().getDescription().
+	 *                  Call usesAdjective and usesFurnishing on the mapped world.
+	 *                  Call WorldFile.write for a world whose last room is the Small room again, then WorldFile.open.
+	 * Postconditions: The mapped world is frozen and holds 3 rooms.
+	 *                 Return value of setCurrentRoom is true.
+	 *                 The description is the one of the Funny room with both doors.
+	 *                 usesAdjective and usesFurnishing are true only for the strings of the matching field.
+	 *                 Writing the world with the duplicate adjective throws IllegalArgumentException, and
+	 *                 leaves the earlier file with 3 rooms and no temporary file behind.
+	 */
+	@Test
+	public void testWorldFile() throws Exception {
+		// Set preconditions
+		World world = new RoomListWorld();
+		world.addFirstRoom(Room.create("Quaint sofa", "Small", Item.CREAM));
+		world.addRoomAtNorth(Room.create("Sad record player", "Funny", Item.NONE), "Magenta", "Massive");
+		world.addRoomAtNorth(Room.create("Tight pizza", "Refinanced", Item.COFFEE), "Beige", "Smart");
+		java.io.File file = java.io.File.createTempFile("world", ".cmqw");
+		file.deleteOnExit();
+		
+		// Execute steps
+		WorldFile.write(world, file.toPath());
+		World mapped = WorldFile.open(file.toPath());
+		CoffeeMakerQuest game = new CoffeeMakerQuestImpl(mapped);
+		game.setPlayer(new Player());
+		assertTrue("Mapped world is not frozen", mapped.isFrozen());
+		assertEquals("Mapped world has the wrong number of rooms", 3, mapped.size());
+		assertTrue("Could not set current room to an equal room in a mapped world", game.setCurrentRoom(Room.create("Quaint sofa", "Small", Item.CREAM)));
+		game.processCommand("N");
+		assertEquals("Description of the Funny room in a mapped world was incorrect", "You see a Funny room.\nIt has a Sad record player.\nA Beige door leads North.\nA Massive door leads South.\n", game.getCurrentRoom().getDescription());
+		assertTrue("Mapped world does not use the Refinanced adjective", mapped.usesAdjective("Refinanced"));
+		assertFalse("Mapped world uses an adjective no room has", mapped.usesAdjective("Dumb"));
+		assertFalse("Mapped world uses a furnishing as an adjective", mapped.usesAdjective("Quaint sofa"));
+		assertTrue("Mapped world does not use the Tight pizza furnishing", mapped.usesFurnishing("Tight pizza"));
+		assertFalse("Mapped world uses an adjective as a furnishing", mapped.usesFurnishing("Funny"));
+		assertFalse("Mapped world uses a null furnishing", mapped.usesFurnishing(null));
+		// Worlds reject duplicate rooms when they are added, so wrap one that hands out the first room twice
+		final World source = world;
+		World duplicate = new RoomListWorld() {
+			@Override
+			public Room getRoom(int index) {
+				return source.getRoom(index == 2 ? 0 : index);
+			}
+		};
+		duplicate.addFirstRoom(Room.create("Quaint sofa", "Small", Item.CREAM));
+		duplicate.addRoomAtNorth(Room.create("Sad record player", "Funny", Item.NONE), "Magenta", "Massive");
+		duplicate.addRoomAtNorth(Room.create("Tight pizza", "Refinanced", Item.COFFEE), "Beige", "Smart");
+		try {
+			WorldFile.write(duplicate, file.toPath());
+			fail("Writing a world with a duplicate adjective did not throw");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals("Failed write replaced the world file", 3, WorldFile.open(file.toPath()).size());
+		assertFalse("Failed write left a temporary file", new java.io.File(file.getPath() + ".tmp").exists());
+	}
+}
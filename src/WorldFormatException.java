@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a world definition has problems, such as malformed lines or
+ * duplicate rooms. Every problem found is listed, not only the first one.
+ */
+public class WorldFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+	// Problems shown in the message; getProblems always returns all of them
+	private static final int MESSAGE_PROBLEMS = 20;
+	
+	private final List<String> problems;
+	
+	public WorldFormatException(String name, List<String> problems) {
+		super(message(name, problems));
+		this.problems = Collections.unmodifiableList(problems);
+	}
+	
+	// Return a description of every problem, in the order they were found
+	public List<String> getProblems() {
+		return problems;
+	}
+	
+	private static String message(String name, List<String> problems) {
+		StringBuilder message = new StringBuilder();
+		message.append(problems.size()).append(" problem(s) in ").append(name);
+		for (int i = 0; i < problems.size() && i < MESSAGE_PROBLEMS; i++) {
+			message.append(System.lineSeparator()).append(problems.get(i));
+		}
+		if (problems.size() > MESSAGE_PROBLEMS) {
+			message.append(System.lineSeparator()).append("... and ").append(problems.size() - MESSAGE_PROBLEMS).append(" more");
+		}
+		return message.toString();
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Loads a house from a text world definition with one room per line, south to
+ * north:
+ *
+ *   adjective,furnishing,item,northDoor,southDoor
+ *
+ * item is NONE, COFFEE, CREAM or SUGAR (empty means NONE). northDoor labels the
+ * north door of the room before this one and southDoor the south door of this
+ * room; both are left empty for the first room. Fields may be quoted with double
+ * quotes to include commas. Blank lines, lines starting with # and a header line
+ * starting with "adjective," are ignored.
+ *
+ * Lines are read and added one at a time through World.addRooms, so only the
+ * world itself is kept in memory. Every malformed line and duplicate room is
+ * collected and reported together in a WorldFormatException.
+ */
+public class WorldLoader {
+	private static final int FIELDS = 5;
+	
+	/**
+	 * Load the world definition at path into a new CompactWorld.
+	 *
+	 * @param path the world definition to read
+	 * @return the frozen world
+	 * @throws WorldFormatException if any line is malformed or defines a duplicate room
+	 * @throws IOException          if the file cannot be read
+	 */
+	public static World load(Path path) throws IOException {
+		return load(path, new CompactWorld());
+	}
+	
+	/**
+	 * Load the world definition at path into world.
+	 *
+	 * @param path  the world definition to read
+	 * @param world an empty world to add the rooms to
+	 * @return world, frozen
+	 * @throws WorldFormatException if any line is malformed or defines a duplicate room
+	 * @throws IOException          if the file cannot be read
+	 */
+	public static World load(Path path, World world) throws IOException {
+		BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+		try {
+			return load(reader, path.toString(), world);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Load a world definition read from reader into world.
+	 *
+	 * @param reader the world definition to read
+	 * @param name   name of the definition used in problem descriptions, e.g. a file name
+	 * @param world  an empty world to add the rooms to
+	 * @return world, frozen
+	 * @throws WorldFormatException if any line is malformed or defines a duplicate room
+	 * @throws IOException          if reader fails
+	 */
+	public static World load(BufferedReader reader, String name, World world) throws IOException {
+		List<String> problems = new ArrayList<String>();
+		try {
+			world.addRooms(new DefinitionIterator(reader, name, problems), problems);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (!problems.isEmpty()) {
+			throw new WorldFormatException(name, problems);
+		}
+		return world.freeze();
+	}
+	
+	// Split a line into its comma separated fields, or return null if a quote is not closed
+	static List<String> split(String line) {
+		List<String> fields = new ArrayList<String>(FIELDS);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				}
+				else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					// Doubled quote inside a quoted field
+					field.append('"');
+					i++;
+				}
+				else {
+					quoted = false;
+				}
+			}
+			else if (c == '"') {
+				quoted = true;
+			}
+			else if (c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			return null;
+		}
+		fields.add(field.toString().trim());
+		return fields;
+	}
+	
+	// Reads room definitions from the next lines as they are requested, adding a
+	// description of every malformed line to problems and skipping it
+	private static class DefinitionIterator implements Iterator<RoomDefinition> {
+		private final BufferedReader reader;
+		private final String name;
+		private final List<String> problems;
+		private int lineNumber;
+		// Whether a line other than a blank line or comment has been read
+		private boolean started;
+		private RoomDefinition next;
+		
+		DefinitionIterator(BufferedReader reader, String name, List<String> problems) {
+			this.reader = reader;
+			this.name = name;
+			this.problems = problems;
+			this.lineNumber = 0;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			try {
+				while (next == null) {
+					String line = reader.readLine();
+					if (line == null) {
+						return false;
+					}
+					lineNumber++;
+					next = parse(line);
+				}
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		@Override
+		public RoomDefinition next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			RoomDefinition definition = next;
+			next = null;
+			return definition;
+		}
+		
+		// Return the room defined by line, or null if the line defines no room
+		private RoomDefinition parse(String line) {
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")
+					|| (!started && trimmed.toLowerCase(Locale.ROOT).startsWith("adjective,"))) {
+				return null;
+			}
+			started = true;
+			String source = name + ":" + lineNumber;
+			List<String> fields = split(trimmed);
+			if (fields == null || fields.size() != FIELDS) {
+				problems.add(source + ": expected " + FIELDS + " fields: adjective,furnishing,item,northDoor,southDoor");
+				return null;
+			}
+			Item item;
+			try {
+				item = fields.get(2).isEmpty() ? Item.NONE : Item.valueOf(fields.get(2).toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				problems.add(source + ": unknown item \"" + fields.get(2) + "\"");
+				return null;
+			}
+			if (fields.get(0).isEmpty() || fields.get(1).isEmpty()) {
+				problems.add(source + ": missing adjective or furnishing");
+				return null;
+			}
+			Room room = Room.create(fields.get(1), fields.get(0), item);
+			// Empty door labels are passed as null so that addRoomAtNorth rejects them
+			String northDoor = fields.get(3).isEmpty() ? null : fields.get(3);
+			String southDoor = fields.get(4).isEmpty() ? null : fields.get(4);
+			return new RoomDefinition(room, northDoor, southDoor, source);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+public class WorldLoaderTest {
+	
+	@Before
+	public void setup() {
+		// Turn off bug injection for Player and Room, since these tests use the real ones
+		Config.setBuggyPlayer(false);
+		Config.setBuggyRoom(false);
+	}
+	
+	/**
+	 * Test case for loading text world definitions.
+	 * Preconditions: None.
+	 * Execution steps: Call WorldLoader.load for a definition of three rooms with a header and a comment.
+	 *                  Call WorldLoader.load for a definition with a duplicate adjective, a duplicate
+	 *                  furnishing and an unknown item.
+	 * Postconditions: The first world is frozen, holds 3 rooms and the second room has both doors.
+	 *                 The second load throws WorldFormatException listing all three problems in line order.
+	 */
+	@Test
+	public void testWorldLoader() throws Exception {
+		// Set preconditions
+		String valid = "adjective,furnishing,item,northDoor,southDoor\n"
+				+ "# Comment\n"
+				+ "Small,Quaint sofa,CREAM,,\n"
+				+ "Funny,\"Sad, old record player\",,Magenta,Massive\n"
+				+ "Refinanced,Tight pizza,coffee,Beige,Smart\n";
+		String invalid = "Small,Quaint sofa,CREAM,,\n"
+				+ "Small,Sad record player,NONE,Magenta,Massive\n"
+				+ "Funny,Quaint sofa,NONE,Beige,Smart\n"
+				+ "Dumb,Flat energy drink,TEA,Dead,Slim\n";
+		
+		// Execute steps
+		World world = WorldLoader.load(new java.io.BufferedReader(new java.io.StringReader(valid)), "valid", new CompactWorld());
+		assertTrue("Loaded world is not frozen", world.isFrozen());
+		assertEquals("Loaded world has the wrong number of rooms", 3, world.size());
+		assertEquals("Description of the Funny room in a loaded world was incorrect", "You see a Funny room.\nIt has a Sad, old record player.\nA Beige door leads North.\nA Massive door leads South.\n", world.getRoom(1).getDescription());
+		try {
+			WorldLoader.load(new java.io.BufferedReader(new java.io.StringReader(invalid)), "invalid", new RoomListWorld());
+			fail("Loading a definition with duplicate rooms did not throw");
+		} catch (WorldFormatException e) {
+			assertEquals("Problems of an invalid definition were incorrect", java.util.Arrays.asList(
+					"invalid:2: duplicate adjective \"Small\"",
+					"invalid:3: duplicate furnishing \"Quaint sofa\"",
+					"invalid:4: unknown item \"TEA\""), e.getProblems());
+		}
+	}
+}